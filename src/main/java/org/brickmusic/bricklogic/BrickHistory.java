@@ -0,0 +1,148 @@
+package org.brickmusic.bricklogic;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * Sliding window of the most recently recognized brick maps, used to calculate an average brick map.
+ * Instead of comparing all buffered maps for every new map, votes are counted per grid cell and per extension color.
+ * Counters are only updated for the bricks of the map entering and the map leaving the window.
+ *
+ * @see BrickHistory#getAverage()
+ */
+public class BrickHistory {
+    /**
+     * Number of grid cells of the ground plate
+     */
+    private static final int CELLS = BrickType.GROUND_PLATE.getWidth() * BrickType.GROUND_PLATE.getHeight();
+
+    /**
+     * Extension colors by their ordinal
+     */
+    private static final InstrumentColor[] COLORS = InstrumentColor.values();
+
+    /**
+     * Maximal number of maps within the window
+     */
+    private final int capacity;
+
+    /**
+     * Maps within the window, the oldest map first
+     */
+    private final ArrayDeque<BrickMap> window;
+
+    /**
+     * Number of maps within the window containing a brick at a cell, stored column by column
+     */
+    private final int[] votes = new int[CELLS];
+
+    /**
+     * Number of bricks within the window at a cell carrying an extension color, indexed by cell and color ordinal
+     */
+    private final int[][] extensionVotes = new int[CELLS][COLORS.length];
+
+    /**
+     * Brick of the most recent map within the window containing a brick at a cell, null if no map does
+     */
+    private final Brick[] latest = new Brick[CELLS];
+
+    /**
+     * Bitmask of each column containing the rows of cells with at least one vote
+     */
+    private final int[] columnMasks = new int[BrickType.GROUND_PLATE.getWidth()];
+
+    /**
+     * Creates a new empty history
+     *
+     * @param capacity Maximal number of maps within the window
+     */
+    public BrickHistory(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.window = new ArrayDeque<>(this.capacity);
+    }
+
+    /**
+     * Adds a map to the window, the oldest map leaves the window if it is full already.
+     * The map must not be changed afterward.
+     *
+     * @param map The map to add
+     */
+    public void add(@NotNull BrickMap map) {
+        if (window.size() >= capacity) vote(window.removeFirst(), -1);
+        window.addLast(map);
+        vote(map, 1);
+    }
+
+    /**
+     * @return True if the window contains as many maps as its capacity
+     */
+    public boolean isFull() {
+        return window.size() >= capacity;
+    }
+
+    /**
+     * Calculates the average brick map of the maps within the window. A brick is kept if at least half of the maps
+     * contain a brick at its position, the brick of the most recent of these maps is used. Extension colors found on
+     * at least a third of the bricks at the position are added to it.
+     *
+     * @return A cleaned map containing copies of the average bricks
+     * @see BrickMap#clean()
+     */
+    @NotNull
+    public BrickMap getAverage() {
+        final BrickMap resultMap = new BrickMap();
+        final int size = window.size();
+        if (size == 0) return resultMap;
+
+        final int height = BrickType.GROUND_PLATE.getHeight();
+        for (int x = 0; x < columnMasks.length; x++) {
+            for (int rows = columnMasks[x]; rows != 0; rows &= rows - 1) {
+                final int y = Integer.numberOfTrailingZeros(rows);
+                final int cell = x * height + y;
+                if (votes[cell] < size / 2) continue;
+
+                final Brick brick = new Brick(latest[cell]);
+                for (int color = 0; color < COLORS.length; color++) {
+                    if (extensionVotes[cell][color] > 0 && extensionVotes[cell][color] >= size / 3) {
+                        brick.addExtension(COLORS[color]);
+                    }
+                }
+                resultMap.addBrick(x, y, brick);
+            }
+        }
+        resultMap.clean();
+        return resultMap;
+    }
+
+    /**
+     * Adds or removes the votes of the bricks of a map
+     *
+     * @param map    The map entering or leaving the window
+     * @param weight 1 if the map enters the window, -1 if it leaves
+     */
+    private void vote(@NotNull BrickMap map, int weight) {
+        final int height = BrickType.GROUND_PLATE.getHeight();
+        for (int x = 0; x < columnMasks.length; x++) {
+            for (int rows = map.getColumnMask(x); rows != 0; rows &= rows - 1) {
+                final int y = Integer.numberOfTrailingZeros(rows);
+                final int cell = x * height + y;
+                final Brick brick = map.getBrick(x, y);
+
+                votes[cell] += weight;
+                for (InstrumentColor extension : brick.getExtensions()) {
+                    extensionVotes[cell][extension.ordinal()] += weight;
+                }
+
+                // The leaving map is the oldest, so the most recent brick only vanishes along with the last vote
+                if (weight > 0) {
+                    latest[cell] = brick;
+                    columnMasks[x] |= 1 << y;
+                } else if (votes[cell] == 0) {
+                    latest[cell] = null;
+                    columnMasks[x] &= ~(1 << y);
+                }
+            }
+        }
+    }
+}
@@ -2,24 +2,33 @@ package org.brickmusic.bricklogic;
 
 import org.brickmusic.sound.SoundData;
 import org.brickmusic.visuals.GridColor;
-import org.brickmusic.visuals.SimpleVisual;
 import org.jetbrains.annotations.NotNull;
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import static org.brickmusic.Main.SETTINGS;
 import static org.brickmusic.sound.SoundData.midiHeightToKeyString;
 
 /**
  * Map containing all bricks and their positions relative to the ground plate.
+ * Maps are built up by the recognition and then frozen before they are published, published maps are immutable
+ * snapshots that can be compared using BrickMapDiff.
+ *
+ * @see BrickMapDiff
  */
 public class BrickMap {
     /**
-     * Bricks and their locations on the map
+     * Number of columns of the map, i.e. beats
      */
-    private Map<java.awt.Point, Brick> bricks;
+    private final static int WIDTH = BrickType.GROUND_PLATE.getWidth();
+
+    /**
+     * Number of rows of the map
+     */
+    private final static int HEIGHT = BrickType.GROUND_PLATE.getHeight();
 
     /**
      * Y coordinate of the row defining speed
@@ -40,58 +49,187 @@ public class BrickMap {
      */
     private final static int METADATA_REGION_START_INDEX = 13;
 
+    /**
+     * Column bitmask of all rows that are not part of the metadata region
+     */
+    private final static int NOTE_ROWS_MASK = (1 << METADATA_REGION_START_INDEX) - 1;
+
+    /**
+     * Bricks by their location on the map, stored column by column (index x * HEIGHT + y). Empty cells are null.
+     */
+    private Brick[] bricks;
+
+    /**
+     * Occupancy bitmask of each column, bit y is set if a brick starts at row y of the column
+     */
+    private final int[] columnMasks;
+
+    /**
+     * True if the map has been published and must not be changed anymore
+     *
+     * @see BrickMap#freeze()
+     */
+    private boolean frozen;
+
+    /**
+     * Metadata derived from the metadata region, null if it has not been derived since the last modification
+     *
+     * @see BrickMap#getMetaData()
+     */
+    private MetaData metaData;
+
     /**
      * Instantiates a new BrickMap
      */
     public BrickMap() {
-        this.bricks = new HashMap<>();
+        this.bricks = new Brick[WIDTH * HEIGHT];
+        this.columnMasks = new int[WIDTH];
+    }
+
+    /**
+     * Copy constructor, bricks are copied as well
+     *
+     * @param copy The map to copy
+     */
+    public BrickMap(@NotNull BrickMap copy) {
+        this();
+        mergeColumns(copy, 0, 0);
     }
 
     /**
-     * Adds a new brick to the brickMap
+     * Adds a new brick to the brickMap. Positions outside the ground plate are ignored, as they can neither be
+     * played nor drawn.
      *
      * @param x     Horizontal position on the groundPlate
      * @param y     Vertical position on the groundPlate
      * @param brick The brick to add
      */
     public void addBrick(int x, int y, Brick brick) {
-        bricks.put(new java.awt.Point(x, y), brick);
+        checkModifiable();
+        metaData = null;
+        if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT || brick == null) return;
+        bricks[x * HEIGHT + y] = brick;
+        columnMasks[x] |= 1 << y;
     }
 
     /**
-     * Gets a vector of bricks that starts at the given location, metadata bricks are omitted
+     * Gets the brick starting at the given location
+     *
+     * @param x The x location (beat location)
+     * @param y The y location
+     * @return The brick found at the location, null if the location is empty or outside the ground plate
+     */
+    public Brick getBrick(int x, int y) {
+        if (x < 0 || x >= WIDTH || y < 0 || y >= HEIGHT) return null;
+        return bricks[x * HEIGHT + y];
+    }
+
+    /**
+     * Gets a vector of bricks that starts at the given location, metadata bricks are omitted.
+     * For allocation free iteration use the note mask of the column instead.
      *
      * @param x The x location (beat location)
      * @return A map containing all bricks found at the x position and their corresponding y values
+     * @see BrickMap#getNoteMask(int)
      */
     public HashMap<Integer, Brick> getBrick(int x) {
         HashMap<Integer, Brick> bricksFound = new HashMap<>();
+        for (int rows = getNoteMask(x); rows != 0; rows &= rows - 1) {
+            final int y = Integer.numberOfTrailingZeros(rows);
+            bricksFound.put(y, bricks[x * HEIGHT + y]);
+        }
+        return bricksFound;
+    }
+
+    /**
+     * @param x The x location (beat location)
+     * @return Occupancy bitmask of the column, bit y is set if a brick starts at row y. 0 outside the ground plate.
+     */
+    public int getColumnMask(int x) {
+        return (x < 0 || x >= WIDTH) ? 0 : columnMasks[x];
+    }
+
+    /**
+     * Gets the occupancy of a column without the metadata region. Bricks of a column can be iterated by repeatedly
+     * taking the lowest set bit: {@code for (int rows = getNoteMask(x); rows != 0; rows &= rows - 1)}
+     *
+     * @param x The x location (beat location)
+     * @return Occupancy bitmask of the note rows of the column
+     * @see BrickMap#getColumnMask(int)
+     */
+    public int getNoteMask(int x) {
+        return getColumnMask(x) & NOTE_ROWS_MASK;
+    }
 
-        for (Map.Entry<java.awt.Point, Brick> mapping : bricks.entrySet()) {
-            java.awt.Point point = mapping.getKey();
-            if (point.x == x && !isMetaData(point)) {
-                bricksFound.put(point.y, mapping.getValue());
+    /**
+     * Replaces all bricks outside a column range by copies of the bricks of another map
+     *
+     * @param other The map to take the bricks outside the range from
+     * @param fromX The first column of the range
+     * @param toX   The column after the last column of the range
+     */
+    public void mergeColumns(@NotNull BrickMap other, int fromX, int toX) {
+        checkModifiable();
+        metaData = null;
+        for (int x = 0; x < WIDTH; x++) {
+            if (x >= fromX && x < toX) continue;
+            columnMasks[x] = other.columnMasks[x];
+            for (int y = 0; y < HEIGHT; y++) {
+                final Brick brick = other.bricks[x * HEIGHT + y];
+                bricks[x * HEIGHT + y] = (brick != null) ? new Brick(brick) : null;
             }
         }
-        return bricksFound;
+    }
+
+    /**
+     * Turns this map into an immutable snapshot. Bricks of frozen maps must not be modified either.
+     * The metadata of the map is derived here once.
+     *
+     * @return This map
+     */
+    public BrickMap freeze() {
+        getMetaData();
+        frozen = true;
+        return this;
+    }
+
+    /**
+     * @return True if this map is an immutable snapshot
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * @throws IllegalStateException If the map is frozen
+     */
+    private void checkModifiable() {
+        if (frozen) throw new IllegalStateException("Published brick maps must not be modified");
     }
 
     /**
      * @return True if this BrickMap does not contain any bricks, false otherwise
      */
     public boolean isEmpty() {
-        return bricks.isEmpty();
+        for (int mask : columnMasks) {
+            if (mask != 0) return false;
+        }
+        return true;
     }
 
     /**
-     * Draws the BrickMap to a Mat object
+     * Draws the static background of all brick maps, i.e. the metadata area and the grid. The image is reallocated
+     * if its size or type does not fit.
      *
-     * @param factor The factor of rescaling, width and height are multiplied by this value
-     * @return The generated Mat representing this BrickMap
+     * @param image  The image to draw to
+     * @param factor The factor of rescaling, width and height are multiplied by this value. Lines and texts are
+     *               scaled accordingly, so that maps can be drawn directly at the presented size.
+     * @see BrickMap#drawBricks(Mat, int)
      */
-    public Mat draw(int factor, int beat) {
-        int width = BrickType.GROUND_PLATE.getWidth() * factor, height = BrickType.GROUND_PLATE.getHeight() * factor;
-        Mat image = Mat.zeros(new Size(width, height), CvType.CV_8UC3);
+    public static void drawBackground(@NotNull Mat image, int factor) {
+        int width = WIDTH * factor, height = HEIGHT * factor;
+        image.create(height, width, CvType.CV_8UC3);
+        image.setTo(Scalar.all(0));
         final Point[] lines = new Point[2];
 
         // Draw Metadata area
@@ -100,137 +238,171 @@ public class BrickMap {
         Imgproc.fillConvexPoly(image, new MatOfPoint(areaPoints), GridColor.METADATA_REGION);
 
         // Draw Grid
-        for (int i = 0; i < BrickType.GROUND_PLATE.getWidth(); i++) {
+        for (int i = 0; i < WIDTH; i++) {
             lines[0] = new Point(i * factor, height);
             lines[1] = new Point(i * factor, 0);
-            Imgproc.drawContours(image, List.of(new MatOfPoint(lines)), -1, (i % 4 != 0) ? GridColor.GREEN : GridColor.BLUE, 2);
+            Imgproc.drawContours(image, List.of(new MatOfPoint(lines)), -1, (i % 4 != 0) ? GridColor.GREEN : GridColor.BLUE,
+                    scaleDrawing(2, factor));
         }
-        for (int i = 0; i < BrickType.GROUND_PLATE.getHeight(); i++) {
+        for (int i = 0; i < HEIGHT; i++) {
             lines[0] = new Point(width, i * factor);
             lines[1] = new Point(0, i * factor);
-            Imgproc.drawContours(image, List.of(new MatOfPoint(lines)), -1, GridColor.GREEN, 2);
+            Imgproc.drawContours(image, List.of(new MatOfPoint(lines)), -1, GridColor.GREEN, scaleDrawing(2, factor));
         }
+    }
 
+    /**
+     * Draws the bricks of this map and the row descriptions onto a background
+     *
+     * @param image  The image containing the background to draw to
+     * @param factor The factor of rescaling, must match the factor of the background
+     * @see BrickMap#drawBackground(Mat, int)
+     */
+    public void drawBricks(@NotNull Mat image, int factor) {
         // Draw bricks in a sorted manner (smallest are drawn at last to show pins contained on other bricks)
-        // For Map sorting see https://stackoverflow.com/a/23846961/9437524 - Shared under CC BY-SA 4 by Brian Goetz
-        bricks.entrySet().stream().sorted(Collections.reverseOrder(Map.Entry.comparingByValue())).forEach(entry -> {
-            Brick brick = entry.getValue();
-            java.awt.Point point = entry.getKey();
+        occupiedCells().boxed().sorted((a, b) -> bricks[b].compareTo(bricks[a])).forEach(index -> {
+            Brick brick = bricks[index];
+            int x = index / HEIGHT, y = index % HEIGHT;
 
             int brickWidth = brick.getWidth() * factor;
             int brickHeight = brick.getHeight() * factor;
-            Point scaledPoint = new Point(point.x * factor, point.y * factor);
+            Point scaledPoint = new Point(x * factor, y * factor);
 
             // Calculate up-scaled rectangles for preview
+            double[] corners = new double[8];
+            RectGeometry.corners(scaledPoint.x + (double) brickWidth / 2, scaledPoint.y + (double) brickHeight / 2,
+                    brickWidth, brickHeight, brick.getRotation(), corners);
             Point[] points = new Point[4];
-            RotatedRect rect = new RotatedRect(
-                    new Point(scaledPoint.x + (double) brickWidth / 2, scaledPoint.y + (double) brickHeight / 2),
-                    new Size(brickWidth, brickHeight),
-                    brick.getRotation());
-            rect.points(points);
+            for (int i = 0; i < points.length; i++) points[i] = new Point(corners[2 * i], corners[2 * i + 1]);
 
             // Draw brick rectangles (metadata pins colors are overwritten)
-            Scalar color = (isMetaData(point)) ? GridColor.METADATA_PINS : brick.getColor().getScalar();
+            Scalar color = (isMetaData(y)) ? GridColor.METADATA_PINS : brick.getColor().getScalar();
             Imgproc.fillConvexPoly(image, new MatOfPoint(points), color);
 
             // Draw color extensions as circles
             for (int i = 0; i < brick.getExtensions().size(); i++) {
                 Scalar extensionColor = brick.getExtensions().get(i).getScalar();
                 Imgproc.circle(image,
-                        new Point(scaledPoint.x + 100 + i * 40, scaledPoint.y + (double) brickHeight / 2),
-                        40, extensionColor, Imgproc.FILLED);
+                        new Point(scaledPoint.x + factor * (1 + i * 0.4), scaledPoint.y + (double) brickHeight / 2),
+                        scaleDrawing(40, factor), extensionColor, Imgproc.FILLED);
             }
         });
 
         // Draw note height and metadata text descriptions
-        for (int i = 0; i < BrickType.GROUND_PLATE.getHeight(); i++) {
+        final int pitch = getMetaData().pitch();
+        final double fontScale = 0.02 * factor;
+        final int fontThickness = scaleDrawing(4, factor);
+        for (int i = 0; i < HEIGHT; i++) {
+            final Point position = new Point(0, (i + 0.7) * factor);
             if (i < METADATA_REGION_START_INDEX) {
                 Imgproc.putText(image,
-                        midiHeightToKeyString(SoundData.BASE_KEY_SHIFT + getMetaData().pitch() + (Math.abs(BrickType.GROUND_PLATE.getHeight()) - i)),
-                        new Point(0, i * factor + 70), Imgproc.FONT_HERSHEY_SIMPLEX, 2, GridColor.RED, 4);
+                        midiHeightToKeyString(SoundData.BASE_KEY_SHIFT + pitch + (Math.abs(HEIGHT) - i)),
+                        position, Imgproc.FONT_HERSHEY_SIMPLEX, fontScale, GridColor.RED, fontThickness);
             } else {
-                Imgproc.putText(image, MetaData.mappings()[i % METADATA_REGION_START_INDEX], new Point(0, i * factor + 70),
-                        Imgproc.FONT_HERSHEY_SIMPLEX, 2, GridColor.RED, 4);
+                Imgproc.putText(image, MetaData.mappings()[i % METADATA_REGION_START_INDEX], position,
+                        Imgproc.FONT_HERSHEY_SIMPLEX, fontScale, GridColor.RED, fontThickness);
             }
         }
+    }
 
-        // Draw beat indicator
+    /**
+     * Draws the beat indicator, marking the quarter note containing the current beat
+     *
+     * @param image  The image to draw to
+     * @param factor The factor of rescaling, must match the factor of the image
+     * @param beat   The current beat position
+     */
+    public static void drawBeatIndicator(@NotNull Mat image, int factor, int beat) {
+        final Point[] lines = new Point[2];
         lines[0] = new Point((beat - beat % 4) * factor, image.height());
         lines[1] = new Point((beat - beat % 4) * factor, 0);
-        Imgproc.putText(image, String.valueOf((beat - beat % 4) / 4 + 1), new Point(lines[0].x + 5, lines[0].y - 15),
-                Imgproc.FONT_HERSHEY_SIMPLEX, 5, GridColor.RED, 4);
-        Imgproc.drawContours(image, List.of(new MatOfPoint(lines)), -1, GridColor.RED, 10);
-
-        return image;
+        Imgproc.putText(image, String.valueOf((beat - beat % 4) / 4 + 1),
+                new Point(lines[0].x + 0.05 * factor, lines[0].y - 0.15 * factor), Imgproc.FONT_HERSHEY_SIMPLEX,
+                0.05 * factor, GridColor.RED, scaleDrawing(4, factor));
+        Imgproc.drawContours(image, List.of(new MatOfPoint(lines)), -1, GridColor.RED, scaleDrawing(10, factor));
     }
 
     /**
-     * Calculates the average brick map of a list of given brick maps.
+     * Scales a line thickness or radius chosen for a rescaling factor of 100 to another factor
      *
-     * @param maps The maps to calculate the average of
-     * @return A map containing bricks if the given bricks matched with the average threshold of brick mappings within the map.
-     */
-    @NotNull
-    public static BrickMap getAverageBrickMap(ArrayList<BrickMap> maps) {
-        BrickMap resultMap = new BrickMap();
-
-        for (int x = 0; x < 32; x++) {
-            for (int y = 0; y < 16; y++) {
-                int foundBrickCounter = 0;
-                Brick foundBrick = null;
-                HashMap<InstrumentColor, Integer> foundExtensions = new HashMap<>();
-                for (BrickMap map : maps) {
-                    if (map.bricks.get(new java.awt.Point(x, y)) != null) {
-                        foundBrickCounter++;
-                        foundBrick = new Brick(map.bricks.get(new java.awt.Point(x, y)));
-
-                        // Color extension average
-                        for (InstrumentColor extension : foundBrick.getExtensions()) {
-                            foundExtensions.put(extension, foundExtensions.getOrDefault(extension, 0) + 1);
-                        }
-                    }
-                }
-
-                // Add average brick if sufficient
-                if (foundBrickCounter >= maps.size() / 2) {
-                    for (Map.Entry<InstrumentColor, Integer> entry : foundExtensions.entrySet()) {
-                        if (entry.getValue() >= maps.size() / 3) {
-                            foundBrick.addExtension(entry.getKey());
-                        }
-                    }
-                    resultMap.addBrick(x, y, foundBrick);
-                }
-            }
-        }
-        resultMap.clean();
-        return resultMap;
+     * @param size   The size at a factor of 100
+     * @param factor The factor of rescaling drawn with
+     * @return The scaled size, at least one pixel
+     */
+    private static int scaleDrawing(int size, int factor) {
+        return Math.max(1, (int) Math.round(size * factor / 100.0));
     }
 
     /**
      * Cleans the brick map from invalid brick positions and manages brick extension placements.
      * Bricks which overlap and meet specific criteria are removed from the map, the others remain unchanged.<br><br>
      * Pins are either removed as individuals and added as extensions to a brick or added as individuals if they are not
-     * contained in another brick.
+     * contained in another brick.<br><br>
+     * Bricks overlap if the interiors of their rotated areas intersect, bricks only touching each other do not overlap.
+     * Each brick is rasterised once to the grid cells its bounding box touches. Only bricks sharing a cell are tested
+     * for overlap instead of all pairs of bricks.<br><br>
+     * Previously a brick only overlapped another if one of its corners lay strictly inside the other brick. In
+     * contrast, the overlap is now symmetric, i.e. a brick containing another brick overlaps it as well, and bricks
+     * crossing each other or sharing aligned edges overlap even if no corner lies inside the other brick.
      *
-     * @see BrickMap#overlap(java.awt.Point, Brick, java.awt.Point, Brick)
+     * @see BrickMap#rasterize(double[])
+     * @see RectGeometry#overlap(double[], double[])
      */
     public void clean() {
-        HashMap<java.awt.Point, Brick> cleanedMap = new HashMap<>();
-        for (var firstMapping : bricks.entrySet()) {
-            boolean overlaps = false;
-            Brick brick1 = firstMapping.getValue();
-            java.awt.Point point1 = firstMapping.getKey();
+        checkModifiable();
+        metaData = null;
+        final Brick[] cleanedMap = new Brick[WIDTH * HEIGHT];
+        final int[] occupied = occupiedCells().toArray();
+
+        // Rasterise all bricks and list the bricks touching each cell (cell c is touched by cellStart[c] to
+        // cellStart[c + 1] of the cell bricks)
+        final double[][] corners = new double[occupied.length][8];
+        final int[][] footprints = new int[occupied.length][];
+        final int[] cellStart = new int[WIDTH * HEIGHT + 1];
+        for (int i = 0; i < occupied.length; i++) {
+            final Brick brick = bricks[occupied[i]];
+            RectGeometry.corners(occupied[i] / HEIGHT + brick.getWidth() / 2.0,
+                    occupied[i] % HEIGHT + brick.getHeight() / 2.0, brick.getWidth(), brick.getHeight(),
+                    brick.getRotation(), corners[i]);
+            footprints[i] = rasterize(corners[i]);
+            for (int cell : footprints[i]) cellStart[cell + 1]++;
+        }
+        for (int cell = 0; cell < WIDTH * HEIGHT; cell++) cellStart[cell + 1] += cellStart[cell];
+        final int[] cellBricks = new int[cellStart[WIDTH * HEIGHT]];
+        final int[] filled = Arrays.copyOf(cellStart, WIDTH * HEIGHT);
+        for (int i = 0; i < occupied.length; i++) {
+            for (int cell : footprints[i]) cellBricks[filled[cell]++] = i;
+        }
+
+        final int[] overlapping = new int[occupied.length];
+        final int[] seen = new int[occupied.length];
+        for (int i = 0; i < occupied.length; i++) {
+            // Collect the overlapping bricks in map order
+            int overlapCount = 0;
+            for (int cell : footprints[i]) {
+                for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                    final int j = cellBricks[k];
+                    if (j != i && seen[j] != i + 1) {
+                        seen[j] = i + 1;
+                        if (RectGeometry.overlap(corners[i], corners[j])) overlapping[overlapCount++] = j;
+                    }
+                }
+            }
+            Arrays.sort(overlapping, 0, overlapCount);
+
+            final int first = occupied[i];
+            final Brick brick1 = bricks[first];
 
             // For small bricks, check if the small brick is contained in another brick
-            if (firstMapping.getValue().isSmall()) {
+            if (brick1.isSmall()) {
                 boolean contained = false;
-                for (var secondMapping : bricks.entrySet()) {
-                    Brick brick2 = secondMapping.getValue();
-                    java.awt.Point point2 = secondMapping.getKey();
+                for (int k = 0; k < overlapCount; k++) {
+                    final int second = occupied[overlapping[k]];
+                    final Brick brick2 = bricks[second];
 
-                    if (!point1.equals(point2) && !brick2.isSmall() && overlap(point1, brick1, point2, brick2)) {
+                    if (!brick2.isSmall()) {
                         brick2.addExtension(brick1.getColor());
-                        cleanedMap.put(point2, brick2);
+                        cleanedMap[second] = brick2;
                         contained = true;
                         break;
                     }
@@ -238,76 +410,95 @@ public class BrickMap {
 
                 // Only add small bricks that are not contained in others, for color extension contained in other bricks
                 // see the following code block overlapping region.
-                if (!contained) cleanedMap.put(point1, brick1);
+                if (!contained) cleanedMap[first] = brick1;
             }
 
             // Default brick cleaning
             else {
-                for (var secondMapping : bricks.entrySet()) {
-                    Brick brick2 = secondMapping.getValue();
-                    java.awt.Point point2 = secondMapping.getKey();
-
-                    // Overlapping brick cases
-                    if (overlap(point1, brick1, point2, brick2)) {
-                        // Discard pin bricks and add them as extension to the bigger brick
-                        if (brick2.isSmall()) {
-                            brick1.addExtension(brick2.getColor());
-                            cleanedMap.put(point1, brick1);
-                        }
-
-                        // If two overlapping bricks have been found, the first which is found rotated will be removed
-                        // If no of the overlapping bricks is rotated, the smaller one is removed
-                        else if (brick2.getRotation() != 0) {
-                            cleanedMap.put(point1, brick1);
-                        } else if (brick1.getRotation() != 0) {
-                            cleanedMap.put(point2, brick2);
-                        } else {
-                            if (brick1.compareTo(brick2) <= 0) cleanedMap.put(point2, brick2);
-                            else cleanedMap.put(point1, brick1);
-                        }
-                        overlaps = true;
+                for (int k = 0; k < overlapCount; k++) {
+                    final int second = occupied[overlapping[k]];
+                    final Brick brick2 = bricks[second];
+
+                    // Discard pin bricks and add them as extension to the bigger brick
+                    if (brick2.isSmall()) {
+                        brick1.addExtension(brick2.getColor());
+                        cleanedMap[first] = brick1;
+                    }
+
+                    // If two overlapping bricks have been found, the first which is found rotated will be removed
+                    // If no of the overlapping bricks is rotated, the smaller one is removed
+                    else if (brick2.getRotation() != 0) {
+                        cleanedMap[first] = brick1;
+                    } else if (brick1.getRotation() != 0) {
+                        cleanedMap[second] = brick2;
+                    } else {
+                        if (brick1.compareTo(brick2) <= 0) cleanedMap[second] = brick2;
+                        else cleanedMap[first] = brick1;
                     }
                 }
 
                 // If no overlapping is present, add normally
-                if (!overlaps) cleanedMap.put(point1, brick1);
+                if (overlapCount == 0) cleanedMap[first] = brick1;
             }
         }
 
         bricks = cleanedMap;
+        updateColumnMasks();
     }
 
     /**
-     * Checks if two brick mappings overlap
+     * Rasterises a brick to the grid, i.e. finds the cells touched by the bounding box of the rotated brick, including
+     * cells only touched by its border. Parts outside the ground plate are mapped to the closest cells on the ground
+     * plate, so that bricks overlapping outside the ground plate still share a cell.
      *
-     * @param point1 The position on the map of the first brick
-     * @param brick1 The first brick
-     * @param point2 The position on the map of the second brick
-     * @param brick2 The second brick
-     * @return True if at least one point overlaps, False otherwise
-     */
-    public boolean overlap(@NotNull java.awt.Point point1, @NotNull Brick brick1, @NotNull java.awt.Point point2,
-                           @NotNull Brick brick2) {
-        // These visuals shall only be used for overlap checking
-        final SimpleVisual v1 = new SimpleVisual(new RotatedRect(
-                new Point(point1.x + (double) brick1.getWidth() / 2, point1.y + (double) brick1.getHeight() / 2),
-                new Size(brick1.getWidth(), brick1.getHeight()), brick1.getRotation()));
-        final SimpleVisual v2 = new SimpleVisual(new RotatedRect(
-                new Point(point2.x + (double) brick2.getWidth() / 2, point2.y + (double) brick2.getHeight() / 2),
-                new Size(brick2.getWidth(), brick2.getHeight()), brick2.getRotation()));
-
-        for (Point corner : v1.getPoints()) {
-            if (Imgproc.pointPolygonTest(new MatOfPoint2f(v2.getPoints()), corner, false) > 0) return true;
+     * @param corners The corners of the rotated brick as {x0, y0, ..., x3, y3}
+     * @return The indexes of the touched cells
+     */
+    private static int[] rasterize(@NotNull double[] corners) {
+        double minX = corners[0], maxX = corners[0], minY = corners[1], maxY = corners[1];
+        for (int i = 2; i < 8; i += 2) {
+            minX = Math.min(minX, corners[i]);
+            maxX = Math.max(maxX, corners[i]);
+            minY = Math.min(minY, corners[i + 1]);
+            maxY = Math.max(maxY, corners[i + 1]);
+        }
+        final int fromX = clampCell(minX, WIDTH), toX = clampCell(maxX, WIDTH);
+        final int fromY = clampCell(minY, HEIGHT), toY = clampCell(maxY, HEIGHT);
+
+        final int[] cells = new int[(toX - fromX + 1) * (toY - fromY + 1)];
+        int count = 0;
+        for (int i = fromX; i <= toX; i++) {
+            for (int j = fromY; j <= toY; j++) cells[count++] = i * HEIGHT + j;
         }
-        return false;
+        return cells;
+    }
+
+    /**
+     * @param position A position along an axis of the grid
+     * @param cells    The number of cells along the axis
+     * @return The cell containing the position, or the closest cell if the position lies outside the grid
+     */
+    private static int clampCell(double position, int cells) {
+        return (int) Math.max(0, Math.min(cells - 1, Math.floor(position)));
     }
 
     /**
      * Reads the last three lines of the ground plate (metadata region) and returns the collected metadata.
+     * The metadata is derived once and kept until the map is modified.
      *
      * @return The metadata contained in the map
      */
     public MetaData getMetaData() {
+        if (metaData == null) metaData = readMetaData();
+        return metaData;
+    }
+
+    /**
+     * Derives the metadata from the metadata region of the map
+     *
+     * @return The metadata contained in the map
+     */
+    private MetaData readMetaData() {
         int bpmStepIncrease = 4;
 
         int pitch = 0;
@@ -315,14 +506,15 @@ public class BrickMap {
         double volume = 0.5;
 
         // Read speed and volume pins
-        for (int i = 0; i < 32; i++) {
-            if (bricks.get(new java.awt.Point(i, SPEED_ROW_INDEX)) != null) {
+        for (int i = 0; i < WIDTH; i++) {
+            final int column = columnMasks[i];
+            if ((column & 1 << SPEED_ROW_INDEX) != 0) {
                 bpm += i * bpmStepIncrease;
             }
-            if (bricks.get(new java.awt.Point(i, VOLUME_ROW_INDEX)) != null) {
+            if ((column & 1 << VOLUME_ROW_INDEX) != 0) {
                 volume = i * (SETTINGS.getDouble("VOLUME") / 32);
             }
-            if (bricks.get(new java.awt.Point(i, INSTRUMENT_ROW_INDEX)) != null) {
+            if ((column & 1 << INSTRUMENT_ROW_INDEX) != 0) {
                 pitch = i;
             }
         }
@@ -331,12 +523,32 @@ public class BrickMap {
     }
 
     /**
-     * Checks if a given point on map is in the region of metadata
+     * Checks if a given row of the map is in the region of metadata
      *
-     * @param p The point to check
-     * @return True if the point lies within the lower metadata region, False otherwise
+     * @param y The row to check
+     * @return True if the row lies within the lower metadata region, False otherwise
+     */
+    public static boolean isMetaData(int y) {
+        return y >= METADATA_REGION_START_INDEX;
+    }
+
+    /**
+     * @return The cell indexes of all bricks of the map in column order
      */
-    public static boolean isMetaData(@NotNull java.awt.Point p) {
-        return p.y >= METADATA_REGION_START_INDEX;
+    private IntStream occupiedCells() {
+        return IntStream.range(0, WIDTH * HEIGHT).filter(index -> bricks[index] != null);
+    }
+
+    /**
+     * Recalculates the occupancy bitmasks of all columns from the stored bricks
+     */
+    private void updateColumnMasks() {
+        for (int x = 0; x < WIDTH; x++) {
+            int mask = 0;
+            for (int y = 0; y < HEIGHT; y++) {
+                if (bricks[x * HEIGHT + y] != null) mask |= 1 << y;
+            }
+            columnMasks[x] = mask;
+        }
     }
 }
@@ -0,0 +1,171 @@
+package org.brickmusic.bricklogic;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Structural difference between two brick map snapshots. Cells are compared per column, bricks differing in type,
+ * rotation, color or the set of extensions are reported as changed. Consumers can use the difference to update only what
+ * changed, an empty difference means that the new snapshot can be ignored.
+ *
+ * @see BrickMap#freeze()
+ */
+public class BrickMapDiff {
+    /**
+     * Per column bitmask of the rows of added bricks
+     */
+    private final int[] added;
+
+    /**
+     * Per column bitmask of the rows of removed bricks
+     */
+    private final int[] removed;
+
+    /**
+     * Per column bitmask of the rows of replaced or modified bricks
+     */
+    private final int[] changed;
+
+    /**
+     * Bitmask of all columns containing any difference
+     */
+    private final int changedColumns;
+
+    /**
+     * Metadata of the previous snapshot, null if there is none
+     */
+    private final MetaData previousMetaData;
+
+    /**
+     * Metadata of the new snapshot
+     */
+    private final MetaData metaData;
+
+    private BrickMapDiff(@NotNull int[] added, @NotNull int[] removed, @NotNull int[] changed,
+                         @Nullable MetaData previousMetaData, @NotNull MetaData metaData) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+        this.previousMetaData = previousMetaData;
+        this.metaData = metaData;
+
+        int columns = 0;
+        for (int x = 0; x < added.length; x++) {
+            if ((added[x] | removed[x] | changed[x]) != 0) columns |= 1 << x;
+        }
+        this.changedColumns = columns;
+    }
+
+    /**
+     * Calculates the difference between two brick maps
+     *
+     * @param previous The previous snapshot, null if there is none, all bricks of the new snapshot are added then
+     * @param next     The new snapshot
+     * @return The difference leading from the previous to the new snapshot
+     */
+    @NotNull
+    public static BrickMapDiff between(@Nullable BrickMap previous, @NotNull BrickMap next) {
+        final int width = BrickType.GROUND_PLATE.getWidth();
+        final int[] added = new int[width], removed = new int[width], changed = new int[width];
+        if (previous == next) return new BrickMapDiff(added, removed, changed, next.getMetaData(), next.getMetaData());
+
+        for (int x = 0; x < width; x++) {
+            final int before = (previous != null) ? previous.getColumnMask(x) : 0;
+            final int after = next.getColumnMask(x);
+            added[x] = after & ~before;
+            removed[x] = before & ~after;
+            for (int rows = before & after; rows != 0; rows &= rows - 1) {
+                final int y = Integer.numberOfTrailingZeros(rows);
+                if (!isSameBrick(previous.getBrick(x, y), next.getBrick(x, y))) changed[x] |= 1 << y;
+            }
+        }
+        return new BrickMapDiff(added, removed, changed, (previous != null) ? previous.getMetaData() : null,
+                next.getMetaData());
+    }
+
+    /**
+     * @return True if neither bricks nor metadata differ
+     */
+    public boolean isEmpty() {
+        return changedColumns == 0 && !isMetaDataChanged();
+    }
+
+    /**
+     * @return Bitmask of the columns containing added, removed or changed bricks, bit x is set for column x
+     */
+    public int getChangedColumns() {
+        return changedColumns;
+    }
+
+    /**
+     * @param x The column
+     * @return Bitmask of the rows of bricks added in the column
+     */
+    public int getAdded(int x) {
+        return added[x];
+    }
+
+    /**
+     * @param x The column
+     * @return Bitmask of the rows of bricks removed from the column
+     */
+    public int getRemoved(int x) {
+        return removed[x];
+    }
+
+    /**
+     * @param x The column
+     * @return Bitmask of the rows of bricks that were replaced or modified within the column
+     */
+    public int getChanged(int x) {
+        return changed[x];
+    }
+
+    /**
+     * @return True if the metadata of the snapshots differ
+     */
+    public boolean isMetaDataChanged() {
+        return !metaData.equals(previousMetaData);
+    }
+
+    /**
+     * @return The metadata of the previous snapshot, null if there is none
+     */
+    @Nullable
+    public MetaData getPreviousMetaData() {
+        return previousMetaData;
+    }
+
+    /**
+     * @return The metadata of the new snapshot
+     */
+    @NotNull
+    public MetaData getMetaData() {
+        return metaData;
+    }
+
+    /**
+     * Compares two bricks including their extensions, which are not part of brick equality. Extensions are compared
+     * regardless of their order, as the order depends on the order the pins were found in and does not affect the
+     * played notes.
+     *
+     * @param first  The first brick
+     * @param second The second brick
+     * @return True if both bricks would be played the same way
+     */
+    private static boolean isSameBrick(@NotNull Brick first, @NotNull Brick second) {
+        if (!first.equals(second)) return false;
+        final List<InstrumentColor> firstExtensions = first.getExtensions();
+        final List<InstrumentColor> secondExtensions = second.getExtensions();
+        if (firstExtensions.size() != secondExtensions.size()) return false;
+        for (InstrumentColor extension : firstExtensions) {
+            if (Collections.frequency(firstExtensions, extension) != Collections.frequency(secondExtensions, extension)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,18 +1,20 @@
 package org.brickmusic.bricklogic;
 
+import org.brickmusic.visuals.ColorSampler;
+import org.brickmusic.view.DebugOverlay;
 import org.brickmusic.visuals.GridColor;
 import org.brickmusic.visuals.ImageProcessing;
 import org.brickmusic.visuals.SimpleVisual;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.opencv.core.*;
-import org.opencv.imgproc.Imgproc;
 
 import java.util.ArrayList;
-import java.util.logging.Level;
+import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 import static java.lang.Math.abs;
-import static org.brickmusic.Main.SETTINGS;
 
 /**
  * The Brick Map translator translates visual objects to a brick map considering already known frames
@@ -24,6 +26,11 @@ public class BrickMapTranslator {
 
     private static final Logger LOGGER = Logger.getLogger(BrickMapTranslator.class.getName());
 
+    /**
+     * Minimal number of visual objects for parallel classification, smaller frames are not worth the overhead
+     */
+    private static final int PARALLEL_TRANSLATION_THRESHOLD = 16;
+
     /**
      * The ground plate required for grid operations
      */
@@ -60,17 +67,65 @@ public class BrickMapTranslator {
      * Translates a visual object into a temporary brick map type and stores it, obtainable using get();
      *
      * @param object   The visual object to translate
-     * @param rawImage The raw image used for color detection
-     * @param debugImg A contour frame to draw on for debugging
+     * @param colors   The color sampler of the raw image, used for color detection
+     * @param overlay  A debug overlay to record the debug preview to, null if no preview is required
      * @see BrickMapTranslator#get()
      */
-    public void translate(SimpleVisual object, Mat rawImage, @NotNull final Mat debugImg) {
+    public void translate(SimpleVisual object, @NotNull ColorSampler colors, @Nullable final DebugOverlay overlay) {
+        place(locate(object, colors, overlay));
+    }
+
+    /**
+     * Translates all visual objects of a frame and stores them, obtainable using get(). The result equals translating
+     * the objects one by one in list order.
+     *
+     * @param objects The visual objects to translate
+     * @param colors  The color sampler of the raw image, used for color detection
+     * @param overlay A debug overlay to record the debug preview to, null if no preview is required
+     * @see BrickMapTranslator#locateAll(List, ColorSampler, DebugOverlay)
+     */
+    public void translateAll(@NotNull List<SimpleVisual> objects, @NotNull ColorSampler colors,
+                             @Nullable final DebugOverlay overlay) {
+        locateAll(objects, colors, overlay).forEach(this::place);
+    }
+
+    /**
+     * Classifies multiple visual objects. Large lists are classified in parallel, as each classification only reads
+     * the shared grid and color sampler. The placements are returned in list order, so the result is deterministic.
+     * Debug overlays are not thread-safe, if a preview is recorded the objects are classified sequentially.
+     *
+     * @param objects The visual objects to classify
+     * @param colors  The color sampler of the raw image, used for color detection
+     * @param overlay A debug overlay to record the debug preview to, null if no preview is required
+     * @return The placements of the visual objects in list order
+     */
+    @NotNull
+    public List<BrickPlacement> locateAll(@NotNull List<SimpleVisual> objects, @NotNull ColorSampler colors,
+                                          @Nullable final DebugOverlay overlay) {
+        final Stream<SimpleVisual> stream = (overlay == null && objects.size() >= PARALLEL_TRANSLATION_THRESHOLD) ?
+                objects.parallelStream() : objects.stream();
+        return stream.map(object -> locate(object, colors, overlay)).toList();
+    }
+
+    /**
+     * Classifies a visual object, i.e. identifies its brick type, color and position on the map. The brick is not
+     * added to the map.
+     *
+     * @param object   The visual object to classify
+     * @param colors   The color sampler of the raw image, used for color detection
+     * @param overlay  A debug overlay to record the debug preview to, null if no preview is required
+     * @return The classified brick and its position
+     * @see BrickMapTranslator#place(BrickPlacement)
+     */
+    @NotNull
+    public BrickPlacement locate(SimpleVisual object, @NotNull ColorSampler colors,
+                                 @Nullable final DebugOverlay overlay) {
         final int border = 15;
         SimpleVisual visual = new SimpleVisual(object), originalVisual = new SimpleVisual(object);
 
-        BrickType type = BrickType.identify(visual.getRectangle(), rawImage.size(),
-                (visual.getCenter().x < border || visual.getCenter().x > debugImg.width() - border ||
-                        visual.getCenter().y < border || visual.getCenter().y > debugImg.height() - border));
+        BrickType type = BrickType.identify(visual.getRectangle(), groundPlate,
+                (visual.getCenter().x < border || visual.getCenter().x > groundPlate.width - border ||
+                        visual.getCenter().y < border || visual.getCenter().y > groundPlate.height - border));
 
         // Correct object scaling according to determined identifiedBrick type
         ImageProcessing.rescaleVisualObject(visual,
@@ -89,7 +144,7 @@ public class BrickMapTranslator {
         visual = new SimpleVisual(visualRect);
 
         // Get color and brick from visual
-        Scalar color = ImageProcessing.getAverageColor(rawImage, rescaledCenter);
+        Scalar color = colors.getAverageColor(rescaledCenter);
         Brick newBrick = new Brick(type, type.rotatable() ? visualRect.angle : 0, InstrumentColor.findNearest(color,
                 type.equals(BrickType.PIN)));
 
@@ -112,40 +167,65 @@ public class BrickMapTranslator {
         if (x < 0) x++;
         if (x <= 5 && x > 0) x++; // TODO: The outer x axis area often has an x-offset of 1, This is a temporary fix
 
-        // Draw debug preview
-        if (SETTINGS.getBoolean("DEBUG_MODE_ACTIVE")) {
-            if (debugImg.empty() || debugImg.width() == 0 || debugImg.height() == 0) {
-                LOGGER.log(Level.WARNING, "Debug preview omitted: The debug image provided is invalid!");
-            } else {
-                final Scalar oldVisualObjectColor = GridColor.BLUE;
-                final Scalar newVisualObjectColor = GridColor.GREEN;
-
-                // Draw grid
-                if (SETTINGS.getBoolean("DEBUG_LEVEL_FINE")) {
-                    for (Point p : gridPoints)
-                        Imgproc.drawMarker(debugImg, p, GridColor.WHITE, Imgproc.MARKER_DIAMOND, 3, 2, Imgproc.LINE_4);
-                    for (Point p : spacePoints)
-                        Imgproc.drawMarker(debugImg, p, GridColor.GREY, Imgproc.MARKER_DIAMOND, 2, 1, Imgproc.LINE_4);
-                }
-
-                // Draw adapted visual object
-                Imgproc.putText(debugImg,
-                        newBrick.getType().toString() + ":" + x + "," + y + ";" + Math.round(newBrick.getRotation()),
-                        visual.getCenter(), 2, 0.6,
-                        newVisualObjectColor);
-                ImageProcessing.drawContours(debugImg, visual, newVisualObjectColor, 2, true);
-
-                // Draw old visual object
-                Imgproc.putText(debugImg,
-                        BrickType.identify(originalVisual.getRectangle(), rawImage.size()).toString() +
-                                ":" + Math.round(originalVisual.getAngle()),
-                        new Point(originalVisual.getCenter().x, originalVisual.getCenter().y + 15), 2, 0.6,
-                        oldVisualObjectColor);
-                ImageProcessing.drawContours(debugImg, originalVisual, oldVisualObjectColor, 1, true);
-            }
+        // Record debug preview
+        if (overlay != null) {
+            final Scalar oldVisualObjectColor = GridColor.BLUE;
+            final Scalar newVisualObjectColor = GridColor.GREEN;
+
+            // Adapted visual object
+            overlay.addLabel(newBrick.getType().toString() + ":" + x + "," + y + ";" + Math.round(newBrick.getRotation()),
+                    visual.getCenter().clone(), newVisualObjectColor);
+            overlay.addShape(visual.getPoints(), newVisualObjectColor, 2, true, visual.getCenter().clone());
+
+            // Old visual object
+            overlay.addLabel(BrickType.identify(originalVisual.getRectangle(), groundPlate).toString() +
+                            ":" + Math.round(originalVisual.getAngle()),
+                    new Point(originalVisual.getCenter().x, originalVisual.getCenter().y + 15), oldVisualObjectColor);
+            overlay.addShape(originalVisual.getPoints(), oldVisualObjectColor, 1, true, originalVisual.getCenter());
         }
 
-        map.addBrick(x, y, newBrick);
+        return new BrickPlacement(x, y, newBrick, rescaledCenter.clone());
+    }
+
+    /**
+     * Adds a copy of a classified brick to the map
+     *
+     * @param placement The classified brick and its position
+     * @see BrickMapTranslator#locate(SimpleVisual, ColorSampler, DebugOverlay)
+     */
+    public void place(@NotNull BrickPlacement placement) {
+        map.addBrick(placement.x(), placement.y(), new Brick(placement.brick()));
+    }
+
+    /**
+     * Records the ground plate grid to a debug overlay
+     *
+     * @param overlay The overlay to record to
+     */
+    public void describeGrid(@NotNull DebugOverlay overlay) {
+        overlay.addMarkers(gridPoints, GridColor.WHITE, 3, 2);
+        overlay.addMarkers(spacePoints, GridColor.GREY, 2, 1);
+    }
+
+    /**
+     * Restricts the translated bricks to a column range, bricks outside the range are taken from a previous
+     * translation instead. This allows to translate only the changed section of a frame.
+     *
+     * @param previous   The previous translation, as returned by getTranslation()
+     * @param fromColumn The first translated column
+     * @param toColumn   The column after the last translated column
+     * @see BrickMapTranslator#getTranslation()
+     */
+    public void merge(@NotNull BrickMap previous, int fromColumn, int toColumn) {
+        map.mergeColumns(previous, fromColumn, toColumn);
+    }
+
+    /**
+     * @return A copy of the translated mappings before cleaning, which can be merged into following translations
+     * @see BrickMapTranslator#merge(BrickMap, int, int)
+     */
+    public BrickMap getTranslation() {
+        return new BrickMap(map);
     }
 
     /**
@@ -190,7 +270,8 @@ public class BrickMapTranslator {
     }
 
     /**
-     * Finds the nearest Neighbours of a given origin point and returns the mean gridPoint
+     * Finds the nearest Neighbours of a given origin point and returns the mean gridPoint.
+     * The grid points remain unchanged, so that the grid can be shared by concurrent translations.
      *
      * @param spacePoints Grid points of the ground plate (spaces between lego pins)
      * @param origin      Origin point which searches neighbours
@@ -199,12 +280,12 @@ public class BrickMapTranslator {
      */
     private static Point findGridAlignedCenter(@NotNull ArrayList<Point> spacePoints, Point origin, boolean plate) {
         Point nearestPoint = null;
+        double nearestDistance = Double.MAX_VALUE;
         for (Point candidate : spacePoints) {
-            if (nearestPoint == null || abs(origin.x - candidate.x) + abs(origin.y - candidate.y) <= abs(origin.x - nearestPoint.x) + abs(origin.y - nearestPoint.y)) {
-                if (plate && candidate.y % 2 > 0) {
-                    candidate.y -= 1;
-                }
-                nearestPoint = candidate;
+            final double distance = abs(origin.x - candidate.x) + abs(origin.y - candidate.y);
+            if (distance <= nearestDistance) {
+                nearestDistance = distance;
+                nearestPoint = (plate && candidate.y % 2 > 0) ? new Point(candidate.x, candidate.y - 1) : candidate;
             }
         }
         return nearestPoint;
@@ -0,0 +1,17 @@
+package org.brickmusic.bricklogic;
+
+import org.opencv.core.Point;
+
+/**
+ * A brick placement is the classification of a single visual object, i.e. a brick and its position on the map.
+ *
+ * @param x      Horizontal position on the ground plate
+ * @param y      Vertical position on the ground plate
+ * @param brick  The classified brick
+ * @param center The grid aligned center of the visual object in the cropped image, used for color sampling
+ * @see BrickMapTranslator#locate(org.brickmusic.visuals.SimpleVisual, org.brickmusic.visuals.ColorSampler,
+ * org.brickmusic.view.DebugOverlay)
+ * @see BrickMapTranslator#place(BrickPlacement)
+ */
+public record BrickPlacement(int x, int y, Brick brick, Point center) {
+}
@@ -0,0 +1,283 @@
+package org.brickmusic.bricklogic;
+
+import org.brickmusic.view.DebugOverlay;
+import org.brickmusic.visuals.ColorSampler;
+import org.brickmusic.visuals.GridColor;
+import org.brickmusic.visuals.SimpleVisual;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.opencv.core.Point;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Size;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.brickmusic.Main.SETTINGS;
+
+/**
+ * The brick tracker follows visual objects across consecutive frames. Visual objects are matched to the tracks of the
+ * previous frames by position, size and rotation, so that each brick keeps a stable identity and a confidence.
+ * Only new or moved objects are classified by the translator, unchanged objects reuse their previous classification
+ * and only have their color checked every few frames.
+ * <br><br>
+ * Tracks enter the map once confirmed by TRACKING_CONFIRMATION_FRAMES frames and leave it after being missed in as
+ * many frames as their confidence. This replaces the history average over full brick maps, so brick tracking and
+ * USE_HISTORY_AVERAGE are exclusive: While tracking is used, the brick map history is not updated.
+ *
+ * @see BrickMapTranslator#locate(SimpleVisual, ColorSampler, DebugOverlay)
+ */
+public class BrickTracker {
+
+    /**
+     * Maximal distance of matched visual objects in ground plate pins
+     */
+    private static final double MATCHING_DISTANCE = 1;
+
+    /**
+     * Maximal distance in ground plate pins for an object to keep its classification
+     */
+    private static final double UNMOVED_DISTANCE = 0.25;
+
+    /**
+     * Maximal relative size difference of matched visual objects
+     */
+    private static final double MATCHING_SIZE_DIFFERENCE = 0.3;
+
+    /**
+     * Maximal relative size difference for an object to keep its classification
+     */
+    private static final double UNMOVED_SIZE_DIFFERENCE = 0.1;
+
+    /**
+     * Number of frames between two color checks of an unmoved object
+     */
+    private static final int COLOR_CHECK_INTERVAL = 5;
+
+    /**
+     * A brick followed across frames
+     */
+    private static final class Track {
+        /**
+         * Stable identity of the tracked brick
+         */
+        private final long id;
+
+        /**
+         * The visual object the current classification is based on
+         */
+        private RotatedRect classified;
+
+        /**
+         * The current classification, null until the first classification of the track is finished
+         */
+        private BrickPlacement placement;
+
+        /**
+         * Number of recent frames supporting the track, capped at twice the confirmation frames
+         */
+        private int confidence = 1;
+
+        /**
+         * Set once the confidence reached the confirmation frames, only confirmed tracks are placed on the map
+         */
+        private boolean confirmed = false;
+
+        /**
+         * Set if a visual object was matched to this track in the current frame
+         */
+        private boolean matched = false;
+
+        /**
+         * Number of frames the track was matched without being classified or having its color checked
+         */
+        private int uncheckedFrames = 0;
+
+        private Track(long id, @NotNull RotatedRect classified) {
+            this.id = id;
+            this.classified = classified;
+        }
+    }
+
+    /**
+     * Currently followed bricks
+     */
+    private final List<Track> tracks = new ArrayList<>();
+
+    /**
+     * Identity of the next new track
+     */
+    private long nextId = 0;
+
+    /**
+     * Number of frames a track must be found in before it is placed on the map
+     */
+    private final int confirmationFrames;
+
+    /**
+     * Maximal rotation difference in degree for an object to keep its classification
+     */
+    private final double angleTolerance;
+
+    /**
+     * Creates a tracker using TRACKING_CONFIRMATION_FRAMES and MAX_ROTATION_DIFF of the settings
+     */
+    public BrickTracker() {
+        this(SETTINGS.getInt("TRACKING_CONFIRMATION_FRAMES"), SETTINGS.getInt("MAX_ROTATION_DIFF"));
+    }
+
+    /**
+     * Creates a tracker
+     *
+     * @param confirmationFrames Number of frames a track must be found in before it is placed on the map, at least 1
+     * @param angleTolerance     Maximal rotation difference in degree for an object to keep its classification
+     */
+    public BrickTracker(int confirmationFrames, double angleTolerance) {
+        this.confirmationFrames = Math.max(1, confirmationFrames);
+        this.angleTolerance = Math.max(0, angleTolerance);
+    }
+
+    /**
+     * Matches the visual objects of a frame to the tracks and updates their confidence. Only tracks within the
+     * analysed section of the frame are updated, the others are kept unchanged.
+     *
+     * @param visuals    The visual objects of the frame
+     * @param plate      Size of the cropped image
+     * @param fromX      Start of the analysed section in the cropped image, objects are assigned by their center
+     * @param toX        End of the analysed section in the cropped image
+     * @param translator The translator to classify new and moved objects with
+     * @param colors     The color sampler of the frame
+     * @param overlay    A debug overlay to record the debug preview to, null if no preview is required
+     */
+    public void update(@NotNull List<SimpleVisual> visuals, @NotNull Size plate, double fromX, double toX,
+                       @NotNull BrickMapTranslator translator, @NotNull ColorSampler colors,
+                       @Nullable DebugOverlay overlay) {
+        final double pin = plate.width / BrickType.GROUND_PLATE.getWidth();
+
+        final List<Track> pendingTracks = new ArrayList<>();
+        final List<SimpleVisual> pendingVisuals = new ArrayList<>();
+        for (SimpleVisual visual : visuals) {
+            final RotatedRect rect = visual.getRectangle();
+            if (rect.center.x < fromX || rect.center.x >= toX) continue;
+
+            // Nearest unmatched track within the matching bounds
+            Track match = null;
+            double matchDistance = MATCHING_DISTANCE * pin;
+            for (Track track : tracks) {
+                final double distance = distance(track.classified.center, rect.center);
+                if (!track.matched && distance <= matchDistance &&
+                        sizeDifference(track.classified.size, rect.size) <= MATCHING_SIZE_DIFFERENCE &&
+                        angleDifference(track.classified.angle, rect.angle) <= 2 * angleTolerance) {
+                    match = track;
+                    matchDistance = distance;
+                }
+            }
+
+            if (match == null) {
+                final Track track = new Track(nextId++, rect.clone());
+                track.matched = true;
+                track.confirmed = confirmationFrames <= 1;
+                tracks.add(track);
+                pendingTracks.add(track);
+                pendingVisuals.add(visual);
+                continue;
+            }
+
+            // Moved or recolored objects are classified again, keeping their identity
+            final boolean unmoved = matchDistance <= UNMOVED_DISTANCE * pin &&
+                    sizeDifference(match.classified.size, rect.size) <= UNMOVED_SIZE_DIFFERENCE &&
+                    angleDifference(match.classified.angle, rect.angle) <= angleTolerance;
+            boolean reclassify = !unmoved;
+            if (unmoved && ++match.uncheckedFrames >= COLOR_CHECK_INTERVAL) {
+                match.uncheckedFrames = 0;
+                reclassify = isRecolored(match.placement, colors);
+            }
+            if (reclassify) {
+                match.classified = rect.clone();
+                match.uncheckedFrames = 0;
+                pendingTracks.add(match);
+                pendingVisuals.add(visual);
+            }
+
+            match.matched = true;
+            match.confidence = Math.min(2 * confirmationFrames, match.confidence + 1);
+            if (match.confidence >= confirmationFrames) match.confirmed = true;
+        }
+
+        // New and moved objects are classified at once, which allows parallel classification
+        final List<BrickPlacement> placements = translator.locateAll(pendingVisuals, colors, overlay);
+        for (int i = 0; i < placements.size(); i++) {
+            pendingTracks.get(i).placement = placements.get(i);
+        }
+
+        // Tracks of the analysed section which were not found lose confidence, unconfirmed tracks are dropped
+        final Iterator<Track> iterator = tracks.iterator();
+        while (iterator.hasNext()) {
+            final Track track = iterator.next();
+            final double x = track.classified.center.x;
+            if (!track.matched && x >= fromX && x < toX && (!track.confirmed || --track.confidence <= 0)) {
+                iterator.remove();
+                continue;
+            }
+            track.matched = false;
+
+            if (overlay != null && track.confirmed) {
+                overlay.addLabel("#" + track.id + ":" + track.confidence,
+                        new Point(track.classified.center.x, track.classified.center.y - 15), GridColor.YELLOW);
+            }
+        }
+    }
+
+    /**
+     * Adds the bricks of all confirmed tracks to the map of a translator
+     *
+     * @param translator The translator to place the bricks with
+     */
+    public void place(@NotNull BrickMapTranslator translator) {
+        for (Track track : tracks) {
+            if (track.confirmed) translator.place(track.placement);
+        }
+    }
+
+    /**
+     * Drops all tracks, e.g. if the ground plate was moved
+     */
+    public void reset() {
+        tracks.clear();
+    }
+
+    /**
+     * @return The number of currently followed bricks, including unconfirmed ones
+     */
+    public int size() {
+        return tracks.size();
+    }
+
+    /**
+     * Checks if the color at the position of a classified brick no longer matches its color
+     *
+     * @param placement The classification of the brick
+     * @param colors    The color sampler of the current frame
+     * @return True if the brick has to be classified again
+     */
+    private static boolean isRecolored(@NotNull BrickPlacement placement, @NotNull ColorSampler colors) {
+        final boolean pinType = placement.brick().getType() == BrickType.PIN;
+        return InstrumentColor.findNearest(colors.getAverageColor(placement.center()), pinType) !=
+                placement.brick().getColor();
+    }
+
+    private static double distance(@NotNull Point a, @NotNull Point b) {
+        return Math.hypot(a.x - b.x, a.y - b.y);
+    }
+
+    private static double sizeDifference(@NotNull Size a, @NotNull Size b) {
+        return Math.max(Math.abs(a.width - b.width) / Math.max(a.width, b.width),
+                Math.abs(a.height - b.height) / Math.max(a.height, b.height));
+    }
+
+    private static double angleDifference(double a, double b) {
+        final double difference = Math.abs(a - b) % 180;
+        return Math.min(difference, 180 - difference);
+    }
+}
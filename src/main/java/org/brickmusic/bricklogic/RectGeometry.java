@@ -0,0 +1,126 @@
+package org.brickmusic.bricklogic;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Geometry of rotated rectangles on primitive values, e.g. for bricks on the map. Rectangles are given by their
+ * center, size and rotation in degree, using the same conventions as OpenCV's RotatedRect. Polygons are given as
+ * coordinate arrays {x0, y0, x1, y1, ...}. No native calls are performed and nothing is allocated.
+ *
+ * @see org.opencv.core.RotatedRect
+ */
+public final class RectGeometry {
+
+    private RectGeometry() {
+    }
+
+    /**
+     * Calculates the corners of a rotated rectangle in the order of RotatedRect.points()
+     *
+     * @param centerX The horizontal center of the rectangle
+     * @param centerY The vertical center of the rectangle
+     * @param width   The width of the rectangle
+     * @param height  The height of the rectangle
+     * @param angle   The rotation of the rectangle in degree
+     * @param corners Array of at least 8 values the corners are written to as {x0, y0, ..., x3, y3}
+     */
+    public static void corners(double centerX, double centerY, double width, double height, double angle,
+                               @NotNull double[] corners) {
+        final double radians = Math.toRadians(angle);
+        final double b = Math.cos(radians) * 0.5, a = Math.sin(radians) * 0.5;
+
+        corners[0] = centerX - a * height - b * width;
+        corners[1] = centerY + b * height - a * width;
+        corners[2] = centerX + a * height - b * width;
+        corners[3] = centerY - b * height - a * width;
+        corners[4] = 2 * centerX - corners[0];
+        corners[5] = 2 * centerY - corners[1];
+        corners[6] = 2 * centerX - corners[2];
+        corners[7] = 2 * centerY - corners[3];
+    }
+
+    /**
+     * Checks if a point lies strictly within a rotated rectangle
+     *
+     * @param centerX The horizontal center of the rectangle
+     * @param centerY The vertical center of the rectangle
+     * @param width   The width of the rectangle
+     * @param height  The height of the rectangle
+     * @param angle   The rotation of the rectangle in degree
+     * @param x       The horizontal position of the point
+     * @param y       The vertical position of the point
+     * @return True if the point lies inside the rectangle, False if it lies outside or on its border
+     */
+    public static boolean contains(double centerX, double centerY, double width, double height, double angle,
+                                   double x, double y) {
+        final double radians = Math.toRadians(angle);
+        final double cos = Math.cos(radians), sin = Math.sin(radians);
+
+        // Point in the coordinate system of the rectangle, the width axis is rotated by the angle
+        final double dx = x - centerX, dy = y - centerY;
+        final double u = dx * cos + dy * sin, v = dx * sin - dy * cos;
+        return Math.abs(u) < width / 2 && Math.abs(v) < height / 2;
+    }
+
+    /**
+     * Checks if a point lies within a polygon using the crossing number
+     *
+     * @param polygon The polygon coordinates as {x0, y0, x1, y1, ...}
+     * @param x       The horizontal position of the point
+     * @param y       The vertical position of the point
+     * @return True if the point lies inside the polygon, points on the border may be either inside or outside
+     */
+    public static boolean contains(@NotNull double[] polygon, double x, double y) {
+        boolean inside = false;
+        final int n = polygon.length / 2;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            final double xi = polygon[2 * i], yi = polygon[2 * i + 1];
+            final double xj = polygon[2 * j], yj = polygon[2 * j + 1];
+            if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi) inside = !inside;
+        }
+        return inside;
+    }
+
+    /**
+     * Checks if two rotated rectangles overlap using the separating axis theorem. Rectangles only touching each other
+     * do not overlap.
+     *
+     * @param first  The corners of the first rectangle as {x0, y0, ..., x3, y3}
+     * @param second The corners of the second rectangle as {x0, y0, ..., x3, y3}
+     * @return True if the interiors of the rectangles intersect, False otherwise
+     * @see RectGeometry#corners(double, double, double, double, double, double[])
+     */
+    public static boolean overlap(@NotNull double[] first, @NotNull double[] second) {
+        return !hasSeparatingAxis(first, first, second) && !hasSeparatingAxis(second, first, second);
+    }
+
+    /**
+     * Checks if one of the edge normals of a rectangle separates two rectangles. As opposite edges of a rectangle are
+     * parallel, only two neighbouring edges need to be checked.
+     *
+     * @param edges  The corners of the rectangle providing the axes
+     * @param first  The corners of the first rectangle
+     * @param second The corners of the second rectangle
+     * @return True if the projections of the rectangles onto an axis do not overlap
+     */
+    private static boolean hasSeparatingAxis(@NotNull double[] edges, @NotNull double[] first,
+                                             @NotNull double[] second) {
+        for (int edge = 0; edge < 2; edge++) {
+            final double axisX = -(edges[2 * edge + 3] - edges[2 * edge + 1]);
+            final double axisY = edges[2 * edge + 2] - edges[2 * edge];
+
+            double firstMin = Double.POSITIVE_INFINITY, firstMax = Double.NEGATIVE_INFINITY;
+            double secondMin = Double.POSITIVE_INFINITY, secondMax = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < 4; i++) {
+                final double firstProjection = first[2 * i] * axisX + first[2 * i + 1] * axisY;
+                final double secondProjection = second[2 * i] * axisX + second[2 * i + 1] * axisY;
+                firstMin = Math.min(firstMin, firstProjection);
+                firstMax = Math.max(firstMax, firstProjection);
+                secondMin = Math.min(secondMin, secondProjection);
+                secondMax = Math.max(secondMax, secondProjection);
+            }
+            if (firstMax <= secondMin || secondMax <= firstMin) return true;
+        }
+        return false;
+    }
+}
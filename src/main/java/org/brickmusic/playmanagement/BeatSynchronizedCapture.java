@@ -0,0 +1,174 @@
+package org.brickmusic.playmanagement;
+
+import org.brickmusic.visuals.VisualManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.brickmusic.Main.SETTINGS;
+
+/**
+ * Schedules image analysis according to the beat clock of the player instead of a fixed period.
+ * The bars of the map are grouped into windows, one frame is analysed per window and its analysis is started so that
+ * the new brick map is passed to the player just before the next window starts. Frames in between could not change
+ * the playback earlier and are therefore skipped.
+ * <p>
+ * A window is the smallest power of two bars lasting at least FRAME_DELAY milliseconds, so that frames are never
+ * analysed more often than with fixed rate scheduling. As the map consists of a power of two bars, every window starts
+ * at a bar boundary. If no new frame is available when the analysis is due, the analysis is retried as long as it can
+ * still finish before the window starts.
+ *
+ * @see Player#getNanosUntilWindow(int)
+ * @see VisualManager#getRecognitionLatency()
+ */
+public class BeatSynchronizedCapture implements Runnable {
+    private static final Logger LOGGER = Logger.getLogger(BeatSynchronizedCapture.class.getName());
+
+    /**
+     * Time in nanoseconds between the expected end of analysis and the start of the next window
+     */
+    private static final long SAFETY_MARGIN = TimeUnit.MILLISECONDS.toNanos(15);
+
+    /**
+     * Time in nanoseconds between two attempts to analyse a frame if no new frame was available
+     */
+    private static final long RETRY_DELAY = TimeUnit.MILLISECONDS.toNanos(5);
+
+    /**
+     * Number of beats per bar
+     */
+    private static final int BEATS_PER_BAR = 4;
+
+    /**
+     * Maximal number of bars per window, i.e. the bars of a full map
+     */
+    private static final int MAXIMAL_WINDOW_BARS = 8;
+
+    /**
+     * The player providing the beat clock
+     */
+    private final Player player;
+
+    /**
+     * The visual manager performing the analysis
+     */
+    private final VisualManager visualManager;
+
+    /**
+     * The scheduler executing the analysis
+     */
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Minimal time between two analyses in nanoseconds, also used while the beat clock is not yet available
+     */
+    private final long minimalDelay;
+
+    /**
+     * The next scheduled analysis
+     */
+    private ScheduledFuture<?> next;
+
+    /**
+     * Start of the window (System.nanoTime()) targeted by the next analysis
+     */
+    private long deadline = Long.MIN_VALUE / 2;
+
+    /**
+     * Set upon termination, no further analysis is scheduled afterwards
+     */
+    private volatile boolean terminated = false;
+
+    /**
+     * @param player        The player providing the beat clock
+     * @param visualManager The visual manager to run
+     * @param scheduler     The scheduler to execute the analysis on
+     */
+    public BeatSynchronizedCapture(@NotNull Player player, @NotNull VisualManager visualManager,
+                                   @NotNull ScheduledExecutorService scheduler) {
+        this.player = player;
+        this.visualManager = visualManager;
+        this.scheduler = scheduler;
+        this.minimalDelay = TimeUnit.MILLISECONDS.toNanos(SETTINGS.getInt("FRAME_DELAY"));
+    }
+
+    /**
+     * Schedules the first analysis
+     */
+    public synchronized void start() {
+        next = scheduler.schedule(this, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Runs the visual manager once and schedules the next analysis. If no new frame was available, the analysis is
+     * retried shortly afterward if it can still finish before the targeted window starts. Analysis errors are logged,
+     * the next analysis is scheduled nevertheless. Scheduling only stops upon termination or if the scheduler has been
+     * shut down.
+     */
+    @Override
+    public void run() {
+        if (terminated) return;
+        boolean analysed = true;
+        try {
+            analysed = visualManager.analyzeLatestFrame();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Beat synchronized capture: Analysis failed", e);
+        }
+
+        synchronized (this) {
+            if (terminated) return;
+            final long delay = (!analysed && canRetry()) ? RETRY_DELAY : getNextDelay();
+            try {
+                next = scheduler.schedule(this, delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                LOGGER.info("Beat synchronized capture stopped: Scheduler has been shut down");
+            }
+        }
+    }
+
+    /**
+     * Checks if a retried analysis would still finish before the targeted window starts
+     *
+     * @return True if the analysis can be retried
+     */
+    private boolean canRetry() {
+        return System.nanoTime() + RETRY_DELAY + visualManager.getRecognitionLatency() < deadline;
+    }
+
+    /**
+     * Calculates the delay until the next analysis has to start in order to finish just before the next window.
+     * Windows that cannot be reached in time anymore or have already been served are skipped.
+     *
+     * @return The delay in nanoseconds
+     */
+    private long getNextDelay() {
+        final long barNanos = BEATS_PER_BAR * player.getBeatNanos();
+        int bars = 1;
+        while (bars < MAXIMAL_WINDOW_BARS && bars * barNanos < minimalDelay) bars *= 2;
+        final int beats = bars * BEATS_PER_BAR;
+        final long window = bars * barNanos;
+
+        final long now = System.nanoTime();
+        final long untilWindow = player.getNanosUntilWindow(beats);
+        if (untilWindow < 0) return minimalDelay;
+
+        final long lead = visualManager.getRecognitionLatency() + SAFETY_MARGIN;
+        long target = now + untilWindow;
+        while (target - lead < now || target - deadline < window / 2) target += window;
+        deadline = target;
+        return target - lead - now;
+    }
+
+    /**
+     * Stops scheduling, a pending analysis is cancelled
+     */
+    public synchronized void terminate() {
+        terminated = true;
+        if (next != null) next.cancel(false);
+    }
+}
@@ -0,0 +1,100 @@
+package org.brickmusic.playmanagement;
+
+import org.brickmusic.bricklogic.Brick;
+import org.brickmusic.bricklogic.BrickMap;
+import org.brickmusic.bricklogic.BrickMapDiff;
+import org.brickmusic.bricklogic.BrickType;
+import org.brickmusic.bricklogic.MetaData;
+import org.brickmusic.sound.SoundData;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable schedule of the notes of a brick map. The map is compiled once when it is passed to the player, so that
+ * playing a beat only requires to look up and send the prepared notes.
+ *
+ * @see Player#updateMap(BrickMap)
+ */
+class NoteSchedule {
+    /**
+     * Notes of a beat without bricks
+     */
+    private static final SoundData[] NO_NOTES = new SoundData[0];
+
+    /**
+     * Notes to send for each beat of the map
+     */
+    private final SoundData[][] notes;
+
+    /**
+     * Metadata of the compiled map, all notes are prepared with its speed, volume and pitch
+     */
+    private final MetaData metaData;
+
+    /**
+     * Compiles the notes of a brick map
+     *
+     * @param map The map to compile, must not be changed afterward
+     */
+    NoteSchedule(@NotNull BrickMap map) {
+        metaData = map.getMetaData();
+        notes = new SoundData[BrickType.GROUND_PLATE.getWidth()][];
+        for (int beat = 0; beat < notes.length; beat++) {
+            notes[beat] = compileBeat(map, beat);
+        }
+    }
+
+    /**
+     * Compiles the notes of a brick map based on the schedule of a previous map. Notes of beats without differences
+     * are taken from the previous schedule, all beats are compiled if the metadata differs.
+     *
+     * @param previous The schedule of the previous map
+     * @param map      The map to compile, must not be changed afterward
+     * @param diff     The difference between the previous map and the map to compile
+     */
+    NoteSchedule(@NotNull NoteSchedule previous, @NotNull BrickMap map, @NotNull BrickMapDiff diff) {
+        metaData = diff.getMetaData();
+        notes = previous.notes.clone();
+        final int beats = diff.isMetaDataChanged() ? -1 : diff.getChangedColumns();
+        for (int beat = 0; beat < notes.length; beat++) {
+            if ((beats & 1 << beat) != 0) notes[beat] = compileBeat(map, beat);
+        }
+    }
+
+    /**
+     * Prepares the notes of a single beat of a map
+     *
+     * @param map  The map to compile
+     * @param beat The beat position in the track
+     * @return The notes to send at the beat
+     */
+    private SoundData[] compileBeat(@NotNull BrickMap map, int beat) {
+        final int column = map.getNoteMask(beat);
+        if (column == 0) return NO_NOTES;
+
+        final SoundData[] beatNotes = new SoundData[Integer.bitCount(column)];
+        final int speed = Player.bpmToSpeed(metaData.bpm());
+        int i = 0;
+        for (int rows = column; rows != 0; rows &= rows - 1) {
+            final int y = Integer.numberOfTrailingZeros(rows);
+            final Brick brick = map.getBrick(beat, y);
+            final int reversedKey = Math.abs(BrickType.GROUND_PLATE.getHeight() - y);
+            beatNotes[i++] = new SoundData(reversedKey, brick, speed, metaData.volume(), metaData.pitch());
+        }
+        return beatNotes;
+    }
+
+    /**
+     * @param beat The beat position in the track
+     * @return The notes to send at the beat, must not be modified
+     */
+    SoundData[] getNotes(int beat) {
+        return notes[beat];
+    }
+
+    /**
+     * @return The metadata of the compiled map
+     */
+    MetaData getMetaData() {
+        return metaData;
+    }
+}
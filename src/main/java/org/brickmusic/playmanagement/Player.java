@@ -1,23 +1,22 @@
 package org.brickmusic.playmanagement;
 
-import org.brickmusic.bricklogic.Brick;
 import org.brickmusic.bricklogic.BrickMap;
+import org.brickmusic.bricklogic.BrickMapDiff;
 import org.brickmusic.bricklogic.BrickType;
 import org.brickmusic.bricklogic.MetaData;
 import org.brickmusic.externals.NxtManager;
 import org.brickmusic.sound.Communicator;
 import org.brickmusic.sound.SoundData;
+import org.brickmusic.view.BrickMapRenderer;
 import org.brickmusic.view.Viewer;
 import org.brickmusic.visuals.VisualManager;
 import org.jetbrains.annotations.NotNull;
-import org.opencv.core.Core;
 import org.opencv.core.Mat;
-import org.opencv.imgproc.Imgproc;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.Map;
 import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,9 +39,19 @@ public class Player extends TimerTask {
     private static final Mat GPDF_MESSAGE = imread("info-gpdf.png");
 
     /**
-     * The brickMap to be played by this Player
+     * The brickMap to be played by this Player. Maps are replaced by the recognition threads and read by the player
+     * thread, so the reference is volatile like the schedule.
+     *
+     * @see Player#updateMap(BrickMap)
      */
-    private BrickMap map;
+    private volatile BrickMap map;
+
+    /**
+     * Prepared notes of the brick map, compiled when the map is updated
+     *
+     * @see Player#updateMap(BrickMap)
+     */
+    private volatile NoteSchedule schedule;
 
     /**
      * Metadata for continuous playing
@@ -50,15 +59,28 @@ public class Player extends TimerTask {
     private MetaData metaData;
 
     /**
-     * The visualiser showing the brick map and a metronome
+     * The visualiser showing the brick map and a metronome, null in headless mode
      */
     private final Viewer viewer;
 
+    /**
+     * Renders the brick map for the viewer, null in headless mode
+     */
+    private final BrickMapRenderer renderer;
+
     /**
      * The current beat position in the track
      */
     private int beat;
 
+    /**
+     * Beat clock of the player, i.e. the point in time (System.nanoTime()) at which the current run through the 32
+     * beats of the map started. Long.MIN_VALUE if no beat has been played yet.
+     *
+     * @see Player#getNanosUntilWindow(int)
+     */
+    private volatile long loopStart = Long.MIN_VALUE;
+
     /**
      * The sound manager handled by this player manager
      */
@@ -99,8 +121,11 @@ public class Player extends TimerTask {
         if (metaData.bpm() <= 0) throw new IllegalArgumentException("BPM must be >= 0");
         if (metaData.volume() < 0) throw new IllegalArgumentException("Volume must be > 0");
 
-        this.map = new BrickMap();
-        this.viewer = new Viewer(bpmToSpeed(metaData.bpm()), "Digital");
+        this.map = new BrickMap().freeze();
+        this.schedule = new NoteSchedule(map);
+        this.viewer = Viewer.isHeadless() ? null : new Viewer(bpmToSpeed(metaData.bpm()), "Digital");
+        this.renderer = (viewer != null) ?
+                new BrickMapRenderer(viewer.getDisplayWidth() / BrickType.GROUND_PLATE.getWidth()) : null;
         this.communicator = new Communicator();
 
         beat = 0;
@@ -108,14 +133,21 @@ public class Player extends TimerTask {
 
     /**
      * Updates the players map with a new one.
-     * If the new map is empty the old one will be kept and fallback mode will be activated
+     * If the new map is empty the old one will be kept and fallback mode will be activated.
+     * The notes of the map are compiled here, so that playing the map does not require any map traversal. Only beats
+     * that differ from the current map are compiled again, maps without any difference are ignored.
      *
      * @param newMap The new map to set
      * @see Player#fallbackMode
      */
     public void updateMap(@NotNull BrickMap newMap) {
         if (!newMap.isEmpty()) {
-            map = newMap;
+            final BrickMapDiff diff = BrickMapDiff.between(map, newMap);
+            if (!diff.isEmpty()) {
+                final NoteSchedule newSchedule = new NoteSchedule(schedule, newMap, diff);
+                map = newMap;
+                schedule = newSchedule;
+            }
             fallbackMode = BlockingMode.FREE;
         } else {
             fallbackMode = BlockingMode.EMPTY_MAP;
@@ -130,6 +162,8 @@ public class Player extends TimerTask {
      * @see PlayerManager#changeSpeed(int)
      */
     public boolean updateMetaData(@NotNull MetaData data) {
+        if (data.equals(metaData)) return false;
+
         boolean newSpeed = false;
         if (metaData.bpm() != data.bpm()) {
             newSpeed = true;
@@ -157,30 +191,14 @@ public class Player extends TimerTask {
                 }
             }
 
-            final int mapScalingFactor = 100;
-
-            if (updateMetaData(map.getMetaData())) return;
-            Mat image = map.draw(mapScalingFactor, beat);
-
-            if (fallbackMode == BlockingMode.INTERRUPTED) {
-                Imgproc.resize(INTERRUPT_MESSAGE, INTERRUPT_MESSAGE, image.size());
-                Core.addWeighted(image, 0.3, INTERRUPT_MESSAGE, 1, 0, image);
-            } else if (fallbackMode == BlockingMode.EMPTY_MAP) {
-                Imgproc.resize(EMPTY_MESSAGE, EMPTY_MESSAGE, image.size());
-                Core.addWeighted(image, 1, EMPTY_MESSAGE, 1, 0, image);
-            } else if (fallbackMode == BlockingMode.GPDF) {
-                Imgproc.resize(GPDF_MESSAGE, GPDF_MESSAGE, image.size());
-                Core.addWeighted(image, 1, GPDF_MESSAGE, 1, 0, image);
-            }
-            viewer.displayMat(image);
+            final NoteSchedule notes = schedule;
+            if (updateMetaData(notes.getMetaData())) return;
+            if (viewer != null) visualize();
 
+            loopStart = System.nanoTime() - beat * getBeatNanos();
             try {
                 if (SETTINGS.getBoolean("ENABLE_CLICK") && beat % 4 == 0) communicator.sendMessage(metaData.volume());
-                for (Map.Entry<Integer, Brick> brickPair : map.getBrick(beat).entrySet()) {
-                    Brick brickToSend = brickPair.getValue();
-                    int reversedKey = Math.abs(BrickType.GROUND_PLATE.getHeight() - brickPair.getKey());
-                    SoundData message = new SoundData(reversedKey, brickToSend, bpmToSpeed(metaData.bpm()), metaData.volume(),
-                            metaData.pitch());
+                for (SoundData message : notes.getNotes(beat)) {
                     communicator.sendMessage(message);
                 }
             } catch (Exception e) {
@@ -194,6 +212,22 @@ public class Player extends TimerTask {
         }
     }
 
+    /**
+     * Draws the brick map including the current beat and blocking information to the viewer
+     */
+    private void visualize() {
+        Mat image = renderer.render(map, beat);
+
+        if (fallbackMode == BlockingMode.INTERRUPTED) {
+            renderer.addMessage(image, INTERRUPT_MESSAGE, 0.3);
+        } else if (fallbackMode == BlockingMode.EMPTY_MAP) {
+            renderer.addMessage(image, EMPTY_MESSAGE, 1);
+        } else if (fallbackMode == BlockingMode.GPDF) {
+            renderer.addMessage(image, GPDF_MESSAGE, 1);
+        }
+        viewer.displayMat(image);
+    }
+
     /**
      * Converts BPM to LEGO play speed in ms
      *
@@ -203,6 +237,27 @@ public class Player extends TimerTask {
         return (60000 / bpm) / 4; // divide by 4 required as 32 pins are split upon 8 quarter notes
     }
 
+    /**
+     * @return The duration of a single beat in nanoseconds at the current speed
+     */
+    public long getBeatNanos() {
+        return TimeUnit.MILLISECONDS.toNanos(bpmToSpeed(metaData.bpm()));
+    }
+
+    /**
+     * Calculates the time until the next beat window starts. Windows are groups of consecutive beats counted from
+     * the first beat of the map, e.g. windows of 4 beats start at beats 0, 4, 8, ...
+     *
+     * @param beats The number of beats per window, should divide the 32 beats of the map
+     * @return Nanoseconds until the next window starts, -1 if the player has not played any beat yet
+     */
+    public long getNanosUntilWindow(int beats) {
+        final long start = loopStart;
+        if (start == Long.MIN_VALUE) return -1;
+        final long window = beats * getBeatNanos();
+        return window - Math.floorMod(System.nanoTime() - start, window);
+    }
+
     /**
      * @return True if the player manager is currently blocked, False otherwise
      */
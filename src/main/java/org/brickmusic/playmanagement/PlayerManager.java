@@ -1,6 +1,7 @@
 package org.brickmusic.playmanagement;
 
 import org.brickmusic.externals.NxtManager;
+import org.brickmusic.visuals.FrameSource;
 import org.brickmusic.visuals.VisualManager;
 
 import java.io.IOException;
@@ -29,6 +30,11 @@ public class PlayerManager {
      */
     private final VisualManager visualManager;
 
+    /**
+     * Beat synchronized scheduling of the visual manager, null if frames are analysed at a fixed rate
+     */
+    private final BeatSynchronizedCapture beatSynchronizedCapture;
+
     /**
      * Nxt manager attached to the player
      */
@@ -58,8 +64,10 @@ public class PlayerManager {
      */
     public PlayerManager() throws IOException {
         player = new Player(this);
-        visualManager = new VisualManager(SETTINGS.getInt("CAMERA_INDEX"), CAP_DSHOW, player);
+        visualManager = new VisualManager(FrameSource.fromSettings(CAP_DSHOW), player);
         nxtManager = new NxtManager(5555, player);
+        beatSynchronizedCapture = SETTINGS.getBoolean("BEAT_SYNCHRONIZED_CAPTURE") ?
+                new BeatSynchronizedCapture(player, visualManager, SCHEDULER) : null;
 
         if (!visualManager.validateCameraInput()) {
             LOGGER.log(Level.SEVERE, "BrickMusic Terminated due to errors on webcam access");
@@ -76,7 +84,9 @@ public class PlayerManager {
             return;
         }
         SCHEDULER.scheduleAtFixedRate(nxtManager, 0, 1, TimeUnit.MILLISECONDS);
-        SCHEDULER.scheduleAtFixedRate(visualManager, 0, SETTINGS.getInt("FRAME_DELAY"), TimeUnit.MILLISECONDS);
+        visualManager.startCapture();
+        if (beatSynchronizedCapture != null) beatSynchronizedCapture.start();
+        else SCHEDULER.scheduleAtFixedRate(visualManager, 0, SETTINGS.getInt("FRAME_DELAY"), TimeUnit.MILLISECONDS);
         playerScheduler.scheduleAtFixedRate(player, 0, Player.bpmToSpeed(SETTINGS.getInt("BPM")), TimeUnit.MILLISECONDS);
         running = true;
     }
@@ -86,6 +96,7 @@ public class PlayerManager {
      */
     public void stop() {
         nxtManager.terminate();
+        if (beatSynchronizedCapture != null) beatSynchronizedCapture.terminate();
         visualManager.terminate();
         SCHEDULER.close();
         playerScheduler.close();
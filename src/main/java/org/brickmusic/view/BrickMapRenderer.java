@@ -0,0 +1,97 @@
+package org.brickmusic.view;
+
+import org.brickmusic.bricklogic.BrickMap;
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Renders brick maps in layers, so that playing a map does not require to redraw it on every beat. The background is
+ * drawn once, the bricks are drawn once per map snapshot and only the beat indicator is drawn for each beat.
+ * Images are reused, a rendered image is only valid until the next call.
+ *
+ * @see BrickMap#freeze()
+ */
+public class BrickMapRenderer {
+    /**
+     * The factor of rescaling of the brick map
+     */
+    private final int factor;
+
+    /**
+     * Static background layer
+     */
+    private final Mat background = new Mat();
+
+    /**
+     * Background and bricks of the most recently rendered map
+     */
+    private final Mat bricks = new Mat();
+
+    /**
+     * The composed image including the beat indicator
+     */
+    private final Mat frame = new Mat();
+
+    /**
+     * Message images scaled to the size of the rendered images
+     */
+    private final Map<Mat, Mat> scaledMessages = new IdentityHashMap<>();
+
+    /**
+     * The map drawn to the brick layer, null if no map was drawn yet
+     */
+    private BrickMap renderedMap;
+
+    /**
+     * Creates a new renderer
+     *
+     * @param factor The factor of rescaling, width and height of the brick map are multiplied by this value, i.e. the
+     *               size of a pin in pixels
+     */
+    public BrickMapRenderer(int factor) {
+        this.factor = factor;
+        BrickMap.drawBackground(background, factor);
+    }
+
+    /**
+     * Renders a brick map including the beat indicator. The brick layer is only drawn again if the map is not the
+     * same snapshot as before, maps that are not frozen are always drawn.
+     *
+     * @param map  The map to render
+     * @param beat The current beat position
+     * @return The rendered image, which is overwritten by the next call
+     */
+    @NotNull
+    public Mat render(@NotNull BrickMap map, int beat) {
+        if (map != renderedMap || !map.isFrozen()) {
+            background.copyTo(bricks);
+            map.drawBricks(bricks, factor);
+            renderedMap = map;
+        }
+        bricks.copyTo(frame);
+        BrickMap.drawBeatIndicator(frame, factor, beat);
+        return frame;
+    }
+
+    /**
+     * Blends a message image onto a rendered image. Messages are scaled to the size of the rendered image once and
+     * reused afterward, so they must not be changed.
+     *
+     * @param image       The rendered image
+     * @param message     The message to show
+     * @param imageWeight Weight of the rendered image, the message is added with full weight
+     */
+    public void addMessage(@NotNull Mat image, @NotNull Mat message, double imageWeight) {
+        final Mat scaled = scaledMessages.computeIfAbsent(message, original -> {
+            final Mat resized = new Mat();
+            Imgproc.resize(original, resized, background.size());
+            return resized;
+        });
+        Core.addWeighted(image, imageWeight, scaled, 1, 0, image);
+    }
+}
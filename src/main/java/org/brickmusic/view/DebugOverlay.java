@@ -0,0 +1,157 @@
+package org.brickmusic.view;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A debug overlay describes the debug preview of a single analysed frame. Recognition stages only record the shapes
+ * and labels to draw, drawing itself is performed later by a DebugRenderer.
+ *
+ * @see DebugRenderer
+ */
+public class DebugOverlay {
+
+    /**
+     * A recorded drawing operation
+     */
+    private interface Operation {
+        void draw(@NotNull Mat image);
+    }
+
+    /**
+     * Recorded drawing operations in drawing order
+     */
+    private final List<Operation> operations = new ArrayList<>();
+
+    /**
+     * Copy of the image to draw the overlay on, null if no overlay is drawn
+     */
+    private Mat background;
+
+    /**
+     * Copy of the binary edge image of the frame
+     */
+    private Mat edges;
+
+    /**
+     * Sets the image the overlay is drawn on
+     *
+     * @param image The image to copy
+     */
+    public void setBackground(@NotNull Mat image) {
+        background = image.clone();
+    }
+
+    /**
+     * Sets the binary edge image that is presented along with the overlay
+     *
+     * @param image The image to copy
+     */
+    public void setEdges(@NotNull Mat image) {
+        edges = image.clone();
+    }
+
+    /**
+     * Adds contours to the overlay
+     *
+     * @param contours  The contours to draw
+     * @param scale     Factor all contour points are multiplied with
+     * @param color     Contour color
+     * @param thickness Contour thickness
+     */
+    public void addContours(@NotNull List<MatOfPoint> contours, double scale, Scalar color, int thickness) {
+        final List<Point[]> shapes = new ArrayList<>(contours.size());
+        for (MatOfPoint contour : contours) {
+            final Point[] points = contour.toArray();
+            for (Point point : points) {
+                point.x *= scale;
+                point.y *= scale;
+            }
+            shapes.add(points);
+        }
+        operations.add(image -> {
+            final List<MatOfPoint> polygons = shapes.stream().map(MatOfPoint::new).toList();
+            Imgproc.polylines(image, polygons, true, color, thickness);
+            polygons.forEach(MatOfPoint::release);
+        });
+    }
+
+    /**
+     * Adds a closed shape to the overlay
+     *
+     * @param points     Corner points of the shape
+     * @param color      Contour color
+     * @param thickness  Contour thickness
+     * @param drawCenter Set to true if the center of the shape shall be marked
+     * @param center     The center of the shape
+     */
+    public void addShape(@NotNull Point[] points, Scalar color, int thickness, boolean drawCenter, Point center) {
+        final Point[] corners = points.clone();
+        operations.add(image -> {
+            final MatOfPoint polygon = new MatOfPoint(corners);
+            Imgproc.polylines(image, List.of(polygon), true, color, thickness);
+            polygon.release();
+            if (drawCenter) Imgproc.drawMarker(image, center, color, Imgproc.MARKER_STAR, 6, thickness, Imgproc.LINE_4);
+        });
+    }
+
+    /**
+     * Adds a text label to the overlay
+     *
+     * @param text     The text to draw
+     * @param position Bottom left corner of the text
+     * @param color    Text color
+     */
+    public void addLabel(@NotNull String text, @NotNull Point position, Scalar color) {
+        operations.add(image -> Imgproc.putText(image, text, position, 2, 0.6, color));
+    }
+
+    /**
+     * Adds markers to the overlay
+     *
+     * @param points    Positions of the markers
+     * @param color     Marker color
+     * @param size      Marker size
+     * @param thickness Marker line thickness
+     */
+    public void addMarkers(@NotNull List<Point> points, Scalar color, int size, int thickness) {
+        final List<Point> positions = List.copyOf(points);
+        operations.add(image -> {
+            for (Point p : positions)
+                Imgproc.drawMarker(image, p, color, Imgproc.MARKER_DIAMOND, size, thickness, Imgproc.LINE_4);
+        });
+    }
+
+    /**
+     * Draws the overlay onto its background
+     *
+     * @return The background containing the overlay, null if no background was set
+     */
+    Mat draw() {
+        if (background == null) return null;
+        for (Operation operation : operations) operation.draw(background);
+        return background;
+    }
+
+    /**
+     * @return The binary edge image, null if not set
+     */
+    Mat getEdges() {
+        return edges;
+    }
+
+    /**
+     * Releases the images held by this overlay
+     */
+    public void release() {
+        if (background != null) background.release();
+        if (edges != null) edges.release();
+    }
+}
@@ -0,0 +1,116 @@
+package org.brickmusic.view;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A debug renderer draws debug overlays on a separate thread and presents them in viewers, so that image recognition
+ * is not slowed down by debug drawing. Only the most recent overlay is drawn, overlays that were not drawn in time
+ * are discarded. The render thread is started upon the first submitted overlay and stops upon termination.
+ *
+ * @see DebugOverlay
+ */
+public class DebugRenderer {
+    private static final Logger LOGGER = Logger.getLogger(DebugRenderer.class.getName());
+
+    /**
+     * Viewer presenting the binary edge images
+     */
+    private final Viewer processedViewer;
+
+    /**
+     * Viewer presenting the overlays
+     */
+    private final Viewer contourViewer;
+
+    /**
+     * The most recent overlay that has not been drawn yet
+     */
+    private final AtomicReference<DebugOverlay> pending = new AtomicReference<>();
+
+    /**
+     * Thread drawing the overlays, null if not running
+     */
+    private Thread thread;
+
+    /**
+     * Creates a new debug renderer and opens its viewers
+     *
+     * @param refreshRate Refresh rate of the viewers in milliseconds
+     */
+    public DebugRenderer(int refreshRate) {
+        this.processedViewer = new Viewer(refreshRate, "Processed");
+        this.contourViewer = new Viewer(refreshRate, "Contours");
+    }
+
+    /**
+     * Submits an overlay for drawing. A previously submitted overlay that has not been drawn yet is discarded.
+     * The renderer takes ownership of the overlay. The render thread is started if it is not running.
+     *
+     * @param overlay The overlay to draw
+     */
+    public void submit(@NotNull DebugOverlay overlay) {
+        final DebugOverlay replaced = pending.getAndSet(overlay);
+        if (replaced != null) replaced.release();
+        LockSupport.unpark(getThread());
+    }
+
+    /**
+     * Stops the render thread and discards the overlay that has not been drawn yet. The overlay being drawn is
+     * finished before. Viewers stay open, submitting another overlay starts rendering again.
+     */
+    public synchronized void terminate() {
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warning("Debug renderer termination interrupted");
+            }
+            thread = null;
+        }
+        final DebugOverlay overlay = pending.getAndSet(null);
+        if (overlay != null) overlay.release();
+    }
+
+    /**
+     * @return The render thread, which is started if it is not running
+     */
+    private synchronized Thread getThread() {
+        if (thread == null) {
+            thread = new Thread(this::render, "BrickMusic-DebugRenderer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return thread;
+    }
+
+    /**
+     * Render loop executed by the render thread
+     */
+    private void render() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final DebugOverlay overlay = pending.getAndSet(null);
+            if (overlay == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            try {
+                final Mat edges = overlay.getEdges();
+                if (edges != null) processedViewer.displayMat(edges);
+                final Mat image = overlay.draw();
+                if (image != null) contourViewer.displayMat(image);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Debug overlay could not be drawn", e);
+            } finally {
+                overlay.release();
+            }
+        }
+    }
+}
@@ -8,21 +8,32 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
 
+import static org.brickmusic.Main.SETTINGS;
 import static org.opencv.imgcodecs.Imgcodecs.imread;
 
 /**
  * Basic class for real-time result presentation
  */
 public class Viewer {
+    /**
+     * Width of the presented images in pixels, images of other widths are rescaled
+     */
+    private static final int DISPLAY_WIDTH = 960;
+
     /**
      * Component holding the image
      */
     private final JLabel image;
 
     /**
-     * Currently stored Mat object ("frame")
+     * Copy of the most recently displayed Mat object ("frame"), reused for all frames of the same size and type
+     */
+    private final Mat frame = new Mat();
+
+    /**
+     * Set if the frame changed since it was last shown, guarded by the frame
      */
-    private Mat frame;
+    private boolean frameUpdated = false;
 
     /**
      * Starts a new Viewer that shows the loaded frame (if available)
@@ -31,32 +42,59 @@ public class Viewer {
         JFrame frame = new JFrame("Brick Music: " + title);
         frame.setIconImage(matToBufferedImage(imread("icon.png")));
         image = new JLabel();
-        image.setSize(960, 540);
+        image.setSize(DISPLAY_WIDTH, 540);
         frame.add(image);
         frame.pack();
         frame.setVisible(true);
-        frame.setSize(960, 540);
+        frame.setSize(DISPLAY_WIDTH, 540);
 
         Timer timer = new Timer(refreshRate, e -> updateImage());
         timer.start();
     }
 
     /**
-     * Set the current frame
+     * Checks if viewers can and shall be shown. In headless mode no viewers are created and no images are converted
+     * for presentation.
+     *
+     * @return true if headless mode is configured or no display is available, false otherwise
+     */
+    public static boolean isHeadless() {
+        return SETTINGS.getBoolean("HEADLESS_MODE") || GraphicsEnvironment.isHeadless();
+    }
+
+    /**
+     * @return Width of the presented images in pixels, images drawn at this width are shown without rescaling
+     */
+    public int getDisplayWidth() {
+        return DISPLAY_WIDTH;
+    }
+
+    /**
+     * Set the current frame. The frame is copied into the buffer of this viewer, so no native memory is allocated
+     * unless the size or type of the frames changes.
      *
      * @param mat The new Mat to show
      */
     public void displayMat(@NotNull Mat mat) {
-        frame = mat.clone();
+        synchronized (frame) {
+            mat.copyTo(frame);
+            frameUpdated = true;
+        }
     }
 
     /**
-     * Shows the current frame if available
+     * Shows the current frame if it changed since it was last shown, frames are only rescaled if they do not match the
+     * display width
      */
     private void updateImage() {
-        if (frame != null) {
-            this.image.setIcon(new ImageIcon(matToBufferedImage(frame).getScaledInstance(960, -1, Image.SCALE_SMOOTH)));
+        final BufferedImage converted;
+        synchronized (frame) {
+            if (!frameUpdated) return;
+            frameUpdated = false;
+            converted = matToBufferedImage(frame);
         }
+        this.image.setIcon(new ImageIcon((converted.getWidth() == DISPLAY_WIDTH) ? converted :
+                converted.getScaledInstance(DISPLAY_WIDTH, -1, Image.SCALE_SMOOTH)));
     }
 
     /**
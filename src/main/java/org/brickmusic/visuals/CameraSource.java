@@ -0,0 +1,64 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+
+import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_HEIGHT;
+import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_WIDTH;
+
+/**
+ * Frame source reading from a live camera
+ */
+public class CameraSource implements FrameSource {
+
+    private static final int CAMERA_WIDTH = 1920;
+    private static final int CAMERA_HEIGHT = 1080;
+
+    /**
+     * Video capture for webcam collection
+     */
+    private volatile VideoCapture capture;
+
+    private final int cameraIndex;
+    private final int captureMode;
+
+    /**
+     * @param cameraIndex Index of the used camera
+     * @param captureMode Mode for video Capture, default 0
+     */
+    public CameraSource(int cameraIndex, int captureMode) {
+        this.cameraIndex = cameraIndex;
+        this.captureMode = captureMode;
+    }
+
+    @Override
+    public boolean open() {
+        if (capture != null) capture.release();
+        capture = new VideoCapture();
+        capture.open(cameraIndex, captureMode);
+        capture.set(CAP_PROP_FRAME_WIDTH, CAMERA_WIDTH);
+        capture.set(CAP_PROP_FRAME_HEIGHT, CAMERA_HEIGHT);
+        return capture.isOpened();
+    }
+
+    @Override
+    public boolean isOpened() {
+        return capture != null && capture.isOpened();
+    }
+
+    @Override
+    public boolean read(@NotNull Mat frame) {
+        return capture != null && capture.read(frame);
+    }
+
+    @Override
+    public void release() {
+        if (capture != null) capture.release();
+    }
+
+    @Override
+    public String toString() {
+        return "Camera " + cameraIndex;
+    }
+}
@@ -0,0 +1,184 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.logging.Logger;
+
+import static org.brickmusic.Main.SETTINGS;
+
+/**
+ * A change detector compares cropped frames on a heavily downsampled tile level to decide if a full recognition is
+ * required. Each tile holds the average color of its image section, so sensor noise is averaged out while a placed
+ * or removed brick changes the color of at least one tile considerably.
+ * Frames are only reported as unchanged once a number of consecutive unchanged frames was analysed, so that the
+ * brick map history can settle before recognition is paused.
+ * Changes are additionally tracked per bar (four beat columns of the ground plate), so that only changed bars need to
+ * be analysed again.
+ */
+class ChangeDetector {
+    private static final Logger LOGGER = Logger.getLogger(ChangeDetector.class.getName());
+
+    /**
+     * Color difference threshold used if CHANGE_DETECTION_THRESHOLD is missing or invalid
+     */
+    static final int DEFAULT_THRESHOLD = 24;
+
+    /**
+     * Number of stable frames used if FRAME_BUFFER_SIZE is missing or invalid, the brick map history keeps at least
+     * one map
+     */
+    static final int DEFAULT_STABLE_FRAMES = 1;
+
+    /**
+     * Number of tile columns, two tiles per ground plate pin
+     */
+    private static final int TILE_COLUMNS = 64;
+
+    /**
+     * Number of tile rows, two tiles per ground plate pin
+     */
+    private static final int TILE_ROWS = 32;
+
+    /**
+     * Number of bars the ground plate is divided into
+     */
+    static final int BARS = 8;
+
+    /**
+     * Bit mask containing all bars
+     */
+    static final int ALL_BARS = (1 << BARS) - 1;
+
+    /**
+     * Maximal color difference (0-255) of a tile to be considered as unchanged
+     */
+    private final int threshold;
+
+    /**
+     * Number of consecutive unchanged frames that are still analysed before the scene is considered as stable
+     */
+    private final int requiredStableFrames;
+
+    /**
+     * Tiles of the last frame that was considered as changed
+     */
+    private final Mat reference = new Mat();
+
+    /**
+     * Tiles of the currently checked frame
+     */
+    private final Mat tiles = new Mat();
+
+    /**
+     * Per tile difference of the current and the reference frame
+     */
+    private final Mat difference = new Mat();
+
+    /**
+     * Per tile column maximum of the difference of all channels and rows
+     */
+    private final Mat columnDifference = new Mat();
+
+    /**
+     * Bars that changed since the scene was last considered as stable, as bit mask (bit i represents bar i)
+     */
+    private int pendingBars = ALL_BARS;
+
+    /**
+     * Number of consecutive frames without change
+     */
+    private int stableFrames = 0;
+
+    /**
+     * Creates a change detector using CHANGE_DETECTION_THRESHOLD and FRAME_BUFFER_SIZE of the settings
+     */
+    ChangeDetector() {
+        this(SETTINGS.getInt("CHANGE_DETECTION_THRESHOLD"), SETTINGS.getInt("FRAME_BUFFER_SIZE"));
+    }
+
+    /**
+     * Creates a change detector, invalid values are replaced by their defaults
+     *
+     * @param threshold            Maximal color difference (0-255) of a tile to be considered as unchanged
+     * @param requiredStableFrames Number of consecutive unchanged frames that are still analysed, usually the size
+     *                             of the brick map history
+     */
+    ChangeDetector(int threshold, int requiredStableFrames) {
+        if (threshold < 0 || threshold > 255) {
+            LOGGER.warning("Invalid change detection threshold " + threshold + ", using " + DEFAULT_THRESHOLD);
+            threshold = DEFAULT_THRESHOLD;
+        }
+        if (requiredStableFrames < 1) {
+            LOGGER.warning("Invalid frame buffer size " + requiredStableFrames + ", using " + DEFAULT_STABLE_FRAMES);
+            requiredStableFrames = DEFAULT_STABLE_FRAMES;
+        }
+        this.threshold = threshold;
+        this.requiredStableFrames = requiredStableFrames;
+    }
+
+    /**
+     * Checks if a frame has to be analysed, i.e. if the frame changed compared to the reference frame or the
+     * scene has not been stable for long enough.
+     *
+     * @param image The cropped frame to check
+     * @return true if the frame requires a full analysis, false if the last result can be reused
+     */
+    boolean requiresAnalysis(@NotNull Mat image) {
+        Imgproc.resize(image, tiles, new Size(TILE_COLUMNS, TILE_ROWS), 0, 0, Imgproc.INTER_AREA);
+
+        final int changedBars = (reference.empty() || reference.type() != tiles.type()) ? ALL_BARS : getChangedBars();
+        if (changedBars != 0) {
+            tiles.copyTo(reference);
+            pendingBars |= changedBars;
+            stableFrames = 0;
+            return true;
+        }
+        // Unchanged frames are analysed until the brick map history has been filled with the stable scene
+        if (++stableFrames <= requiredStableFrames) return true;
+        pendingBars = 0;
+        return false;
+    }
+
+    /**
+     * Returns the bars which changed since the scene was last considered as stable. These bars are reported until the
+     * scene is stable again, so that all frames filling the brick map history analyse them.
+     *
+     * @return A bit mask of the changed bars, bit i represents the bar starting at ground plate column 4 * i
+     */
+    int getPendingBars() {
+        return pendingBars;
+    }
+
+    /**
+     * Forces the full analysis of upcoming frames until the scene is stable again
+     */
+    void reset() {
+        stableFrames = 0;
+        pendingBars = ALL_BARS;
+    }
+
+    /**
+     * Finds the bars containing tiles which differ more than the configured threshold from the reference in any
+     * color channel
+     *
+     * @return A bit mask of the changed bars
+     */
+    private int getChangedBars() {
+        Core.absdiff(tiles, reference, difference);
+        Core.reduce(difference.reshape(1), columnDifference, 0, Core.REDUCE_MAX);
+
+        final byte[] values = new byte[(int) columnDifference.total()];
+        columnDifference.get(0, 0, values);
+        final int valuesPerBar = values.length / BARS;
+
+        int changedBars = 0;
+        for (int i = 0; i < values.length; i++) {
+            if ((values[i] & 0xFF) > threshold) changedBars |= 1 << (i / valuesPerBar);
+        }
+        return changedBars;
+    }
+}
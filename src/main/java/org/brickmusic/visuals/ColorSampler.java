@@ -0,0 +1,94 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * A color sampler calculates average colors of square image sections. The integral image of a frame is built once,
+ * afterward each average color only requires four lookups regardless of the section size.
+ *
+ * @see <a href="https://docs.opencv.org/4.x/javadoc/org/opencv/imgproc/Imgproc.html#integral(org.opencv.core.Mat,org.opencv.core.Mat,int)">Imgproc.integral</a>
+ */
+public class ColorSampler {
+
+    /**
+     * Half edge length of the sampled square
+     */
+    private static final int SAMPLE_RANGE = 10;
+
+    /**
+     * Integral image of the sampled image, one row and column larger than the image
+     */
+    private final Mat integral = new Mat();
+
+    /**
+     * Width of the sampled image
+     */
+    private int width;
+
+    /**
+     * Height of the sampled image
+     */
+    private int height;
+
+    /**
+     * Prepares the sampler for a new image
+     *
+     * @param image The 3 channel image to sample from
+     */
+    public void update(@NotNull Mat image) {
+        Imgproc.integral(image, integral, CvType.CV_32S);
+        width = image.width();
+        height = image.height();
+    }
+
+    /**
+     * Calculates the average color at a point within a range of 20x20 pixels, pixels outside the image are ignored.
+     *
+     * @param origin The center point of color calculation
+     * @return The mean color value within the range around the given point
+     */
+    @NotNull
+    public Scalar getAverageColor(@NotNull Point origin) {
+        final int left = getLowerBound(origin.x), right = getUpperBound(origin.x, width);
+        final int top = getLowerBound(origin.y), bottom = getUpperBound(origin.y, height);
+        if (left >= right || top >= bottom) return new Scalar(0, 0, 0);
+
+        final double[] topLeft = integral.get(top, left), topRight = integral.get(top, right);
+        final double[] bottomLeft = integral.get(bottom, left), bottomRight = integral.get(bottom, right);
+        final double area = (double) (right - left) * (bottom - top);
+
+        final Scalar color = new Scalar(0, 0, 0);
+        for (int i = 0; i < 3; i++) {
+            color.val[i] = (bottomRight[i] - topRight[i] - bottomLeft[i] + topLeft[i]) / area;
+        }
+        return color;
+    }
+
+    /**
+     * Finds the first pixel index of a sampling range. Only pixels with positive coordinates relative to the
+     * (non integral) origin are considered.
+     *
+     * @param origin The origin coordinate
+     * @return The first pixel index of the range
+     */
+    private static int getLowerBound(double origin) {
+        final int pixel = (int) Math.floor(origin);
+        return Math.max(pixel - SAMPLE_RANGE, (origin > pixel) ? 0 : 1);
+    }
+
+    /**
+     * Finds the index after the last pixel of a sampling range
+     *
+     * @param origin The origin coordinate
+     * @param size   The image size in the direction of the coordinate
+     * @return The pixel index after the range
+     */
+    private static int getUpperBound(double origin, int size) {
+        return Math.min((int) Math.floor(origin) + SAMPLE_RANGE, size);
+    }
+}
@@ -0,0 +1,58 @@
+package org.brickmusic.visuals;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint2f;
+
+/**
+ * Native buffers required to analyse a single frame. Buffers are reused across frames, as long as the camera
+ * resolution does not change, the buffers are allocated once and then only overwritten.
+ *
+ * @see ImageRecognizer
+ */
+class FrameBuffers {
+
+    /**
+     * Cropped color image downscaled to the processing scale
+     */
+    final Mat scaled = new Mat();
+
+    /**
+     * Contrast increased and blurred working copy of the cropped image
+     */
+    final Mat work = new Mat();
+
+    /**
+     * Single channel image of the grayscale edge pipeline
+     */
+    final Mat gray = new Mat();
+
+    /**
+     * Edges of the general canny range, contains the merged binary edge image after preparation
+     */
+    final Mat edges = new Mat();
+
+    /**
+     * Edges of the detailed canny range for circle detection
+     */
+    final Mat circleEdges = new Mat();
+
+    /**
+     * Contour hierarchy output of contour detection
+     */
+    final Mat hierarchy = new Mat();
+
+    /**
+     * Floating point copy of the currently processed contour
+     */
+    final MatOfPoint2f contour = new MatOfPoint2f();
+
+    /**
+     * Approximation of the currently processed contour
+     */
+    final MatOfPoint2f approximation = new MatOfPoint2f();
+
+    /**
+     * Color sampler of the cropped image
+     */
+    final ColorSampler colorSampler = new ColorSampler();
+}
@@ -0,0 +1,59 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+
+import java.nio.file.Path;
+
+import static org.brickmusic.Main.SETTINGS;
+
+/**
+ * A frame source provides the camera frames analysed by a VisualManager. Besides the live camera, recorded frames can
+ * be replayed, which allows to test and benchmark the recognition without a camera.
+ *
+ * @see VisualManager
+ */
+public interface FrameSource {
+
+    /**
+     * (Re-)opens the frame source
+     *
+     * @return true if the source is opened afterward, false otherwise
+     */
+    boolean open();
+
+    /**
+     * @return true if the source is opened, false otherwise
+     */
+    boolean isOpened();
+
+    /**
+     * Reads the next frame. Depending on the source this call may block until the next frame is due.
+     *
+     * @param frame The frame to write to
+     * @return true if a frame was read, false otherwise
+     */
+    boolean read(@NotNull Mat frame);
+
+    /**
+     * Releases the frame source, it can be opened again afterward
+     */
+    void release();
+
+    /**
+     * Creates the frame source defined in the settings. FRAME_SOURCE selects the source type (CAMERA,
+     * IMAGE_DIRECTORY or VIDEO_FILE), replays read from FRAME_SOURCE_PATH.
+     *
+     * @param captureMode Capture mode used for cameras
+     * @return The configured frame source, a camera if no source type is configured
+     */
+    @NotNull
+    static FrameSource fromSettings(int captureMode) {
+        final boolean realTime = SETTINGS.getBoolean("REPLAY_REAL_TIME");
+        return switch (SETTINGS.getString("FRAME_SOURCE")) {
+            case "IMAGE_DIRECTORY" -> new ImageDirectorySource(Path.of(SETTINGS.getString("FRAME_SOURCE_PATH")), realTime);
+            case "VIDEO_FILE" -> new VideoFileSource(SETTINGS.getString("FRAME_SOURCE_PATH"), realTime);
+            default -> new CameraSource(SETTINGS.getInt("CAMERA_INDEX"), captureMode);
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.brickmusic.Main.SETTINGS;
+
+/**
+ * Frame source replaying the images of a directory in alphabetical order. The images are decoded once upon opening
+ * and replayed in an endless loop.
+ */
+public class ImageDirectorySource extends ReplaySource {
+    private static final Logger LOGGER = Logger.getLogger(ImageDirectorySource.class.getName());
+
+    /**
+     * The directory containing the images
+     */
+    private final Path directory;
+
+    /**
+     * Decoded images of the directory
+     */
+    private final List<Mat> images = new ArrayList<>();
+
+    /**
+     * Index of the next image to deliver
+     */
+    private int position = 0;
+
+    /**
+     * @param directory The directory containing the images (jpg or png)
+     * @param realTime  Set to true if images shall be delivered with the frame rate REPLAY_FRAME_RATE, false if
+     *                  images shall be delivered as fast as possible
+     */
+    public ImageDirectorySource(@NotNull Path directory, boolean realTime) {
+        super(realTime);
+        this.directory = directory;
+    }
+
+    @Override
+    public boolean open() {
+        release();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.toString().toLowerCase().matches(".*\\.(jpg|jpeg|png)$")).sorted()
+                    .forEach(file -> {
+                        final Mat image = Imgcodecs.imread(file.toString());
+                        if (!image.empty()) images.add(image);
+                    });
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Image directory " + directory + " cannot be read", e);
+        }
+        return isOpened();
+    }
+
+    @Override
+    public boolean isOpened() {
+        return !images.isEmpty();
+    }
+
+    @Override
+    public boolean read(@NotNull Mat frame) {
+        if (!isOpened() || !awaitNextFrame()) return false;
+        images.get(position).copyTo(frame);
+        position = (position + 1) % images.size();
+        return true;
+    }
+
+    @Override
+    public void release() {
+        images.forEach(Mat::release);
+        images.clear();
+        position = 0;
+    }
+
+    @Override
+    protected double getFrameRate() {
+        return SETTINGS.getDouble("REPLAY_FRAME_RATE");
+    }
+
+    @Override
+    public String toString() {
+        return "Image directory " + directory;
+    }
+}
@@ -5,7 +5,6 @@ import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 
 import java.util.List;
-import java.util.Vector;
 
 import static org.brickmusic.Main.SETTINGS;
 
@@ -20,48 +19,19 @@ public final class ImageProcessing {
             SETTINGS.getDouble("CROP_AREA_ZOOM");
 
     /**
-     * Crops the image to a fixed position.
+     * Calculates the configured crop area containing the LEGO plate.
      *
-     * @param image The image containing the LEGO plate
-     */
-    public static void cropImage(@NotNull Mat image) {
-        final int width = (int) (image.width() * WIDTH_FACTOR);
-        final int height = (int) (image.height() * HEIGHT_FACTOR);
-
-        Rect cropArea = new Rect((image.width() - width) / 2 + SETTINGS.getInt("CROP_AREA_HORIZONTAL_SHIFT"),
-                (image.height() - height) / 2 + SETTINGS.getInt("CROP_AREA_VERTICAL_SHIFT"),
-                width, height);
-        new Mat(image, cropArea).copyTo(image);
-    }
-
-    /**
-     * Calculates the average color at a point within a given range of points
-     *
-     * @param image  The image to read from
-     * @param origin The center point of color calculation
-     * @return The mean color value within the range around the given point
+     * @param imageSize The size of the image containing the LEGO plate
+     * @return The crop area within the image
      */
     @NotNull
-    public static Scalar getAverageColor(Mat image, Point origin) {
-        final int rangeSize = 10;
-        Vector<Point> points = new Vector<>();
+    public static Rect getCropArea(@NotNull Size imageSize) {
+        final int width = (int) (imageSize.width * WIDTH_FACTOR);
+        final int height = (int) (imageSize.height * HEIGHT_FACTOR);
 
-        for (int i = -rangeSize; i < rangeSize; i++) {
-            for (int j = -rangeSize; j < rangeSize; j++) {
-                if (origin.x + i > 0 && origin.y + j > 0 && origin.x + i < image.width() && origin.y + j < image.height())
-                    points.add(new Point(origin.x + i, origin.y + j));
-            }
-        }
-
-        Scalar color = new Scalar(0, 0, 0);
-        for (Point point : points) {
-            for (int j = 0; j < 3; j++) {
-                double[] tColor = image.get((int) point.y, (int) point.x);
-                if (tColor != null && tColor.length > j)
-                    color.val[j] += tColor[j] / points.size();
-            }
-        }
-        return color;
+        return new Rect(((int) imageSize.width - width) / 2 + SETTINGS.getInt("CROP_AREA_HORIZONTAL_SHIFT"),
+                ((int) imageSize.height - height) / 2 + SETTINGS.getInt("CROP_AREA_VERTICAL_SHIFT"),
+                width, height);
     }
 
     /**
@@ -1,15 +1,21 @@
 package org.brickmusic.visuals;
 
+import org.brickmusic.bricklogic.BrickHistory;
 import org.brickmusic.bricklogic.BrickMap;
+import org.brickmusic.bricklogic.BrickMapDiff;
 import org.brickmusic.bricklogic.BrickMapTranslator;
+import org.brickmusic.bricklogic.BrickTracker;
+import org.brickmusic.bricklogic.BrickType;
+import org.brickmusic.view.DebugOverlay;
+import org.brickmusic.view.DebugRenderer;
 import org.brickmusic.view.Viewer;
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -35,79 +41,463 @@ public class ImageRecognizer {
      */
     private static final int MINIMAL_CONTOUR_LENGTH = 80;
 
+    /**
+     * Kernel size of the separable smoothing of the grayscale edge pipeline
+     */
+    private static final int GRAYSCALE_SMOOTHING_SIZE = 17;
+
+    /**
+     * Kernel size of the median blur of the color edge pipeline
+     */
+    private static final int MEDIAN_BLUR_SIZE = 17;
+
+    /**
+     * Maximal distance of approximated contours to the original contour
+     */
+    private static final double CONTOUR_APPROXIMATION_EPSILON = 5;
+
+    /**
+     * Maximal distance of the inner to the outer edge of an outline in pixels, used to reject duplicate contours
+     */
+    private static final int DUPLICATE_EDGE_DISTANCE = 4;
+
+    /**
+     * Number of ground plate columns analysed next to changed bars in tile incremental recognition, ensures that
+     * bricks starting within a changed bar are visible entirely
+     */
+    private static final int TILE_MARGIN_COLUMNS = 6;
+
     private static final Logger LOGGER = Logger.getLogger(ImageRecognizer.class.getName());
 
-    private static final Viewer VIEWER_PROCESSED = new Viewer(500, "Processed");
-    private static final Viewer VIEWER_CONTOURS = new Viewer(500, "Contours");
+    /**
+     * Renders the processed images and debug previews of sampled frames, null in headless mode
+     */
+    private static final DebugRenderer DEBUG_RENDERER = Viewer.isHeadless() ? null : new DebugRenderer(500);
+
+    /**
+     * Brick map history for average calculation, stores the votes of the last calculated brick maps.
+     */
+    private final BrickHistory history;
+
+    /**
+     * Pool of native frame buffers. Buffers are taken for each analysed frame and returned afterward, so that
+     * steady state recognition does not allocate new native images.
+     */
+    private final Queue<FrameBuffers> bufferPool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Structuring element used for edge dilation
+     */
+    private final Mat dilationKernel;
+
+    /**
+     * Channel weights for the conversion of the color distance image to grayscale
+     */
+    private final Mat grayscaleWeights;
+
+    /**
+     * Structuring element used for smoothing in the grayscale edge pipeline
+     */
+    private final Mat smoothingKernel;
+
+    /**
+     * Scale of the images edge and contour detection are performed on, relative to the cropped camera image
+     */
+    private final double processingScale;
+
+    /**
+     * Defines if edges are detected on a single grayscale image instead of the full color image
+     */
+    private final boolean grayscaleEdges;
+
+    /**
+     * Kernel size of the median blur, adapted to the processing scale
+     */
+    private final int medianBlurSize;
+
+    /**
+     * Defines if unchanged frames reuse the last result instead of being analysed
+     */
+    private final boolean changeDetection;
+
+    /**
+     * Defines if only the changed bars of a frame are analysed if change detection is active
+     */
+    private final boolean tileIncremental;
+
+    /**
+     * Defines if the average of the brick map history is returned instead of the captured brick map
+     */
+    private final boolean historyAverage;
+
+    /**
+     * Defines if bricks are tracked across frames instead of averaging the brick map history
+     */
+    private final boolean tracking;
+
+    /**
+     * Only every n-th prepared frame is sampled for debug rendering
+     */
+    private final int debugSampleRate;
+
+    /**
+     * Detects unchanged frames, which do not require a full recognition
+     */
+    private final ChangeDetector changeDetector;
+
+    /**
+     * Locates the ground plate section within the input images
+     */
+    private final PlateRegistration registration;
 
     /**
-     * Brick map buffer for average calculation, stores the last calculated brick maps.
+     * Follows bricks across frames if brick tracking is used instead of the history average
      */
-    private final ArrayList<BrickMap> brickMapBuffer;
+    private final BrickTracker tracker;
+
+    /**
+     * Set if the tracks no longer apply, e.g. after a failed analysis or a moved ground plate section. The tracker
+     * belongs to the translation stage, so it is reset there before the next frame is tracked.
+     */
+    private volatile boolean tracksOutdated = false;
+
+    /**
+     * Generation of the ground plate section of the last prepared frame
+     *
+     * @see PlateRegistration#getGeneration()
+     */
+    private int plateGeneration = -1;
+
+    /**
+     * Number of frames prepared, used to sample frames for debug rendering
+     */
+    private long preparedFrames = 0;
+
+    /**
+     * The last brick map returned by the translation stage, reused for unchanged frames. Null if the last analysis
+     * failed.
+     */
+    private volatile BrickMap lastBrickMap;
+
+    /**
+     * The uncleaned translation of the last analysed frame, used to merge frames of which only a section is analysed.
+     * Null if the last analysis failed.
+     */
+    private volatile BrickMap lastTranslation;
 
     /**
      * Initializes a new ImageRecognizer with default settings
      */
     protected ImageRecognizer() {
-        this.brickMapBuffer = new ArrayList<>(SETTINGS.getInt("FRAME_BUFFER_SIZE"));
+        this(SETTINGS.getBoolean("GRAYSCALE_EDGE_PIPELINE"));
+    }
+
+    /**
+     * Initializes a new ImageRecognizer with default settings and a fixed edge detection pipeline
+     *
+     * @param grayscaleEdges True to detect edges on a single grayscale image, False to use the full color image
+     */
+    ImageRecognizer(boolean grayscaleEdges) {
+        this.grayscaleEdges = grayscaleEdges;
+        this.history = new BrickHistory(SETTINGS.getInt("FRAME_BUFFER_SIZE"));
+        final double scale = SETTINGS.getDouble("PROCESSING_SCALE");
+        this.processingScale = (scale > 0) ? Math.min(1, Math.max(0.1, scale)) : 1;
+        this.medianBlurSize = scaleKernelSize(MEDIAN_BLUR_SIZE);
+        this.changeDetection = SETTINGS.getBoolean("CHANGE_DETECTION_ACTIVE");
+        this.tileIncremental = SETTINGS.getBoolean("TILE_INCREMENTAL_RECOGNITION");
+        this.historyAverage = SETTINGS.getBoolean("USE_HISTORY_AVERAGE");
+        this.tracking = SETTINGS.getBoolean("USE_BRICK_TRACKING");
+        this.debugSampleRate = Math.max(1, SETTINGS.getInt("DEBUG_SAMPLE_RATE"));
+        this.dilationKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
+        this.grayscaleWeights = new Mat(1, 3, CvType.CV_32F, new Scalar(1));
+        final int smoothingSize = scaleKernelSize(GRAYSCALE_SMOOTHING_SIZE);
+        this.smoothingKernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(smoothingSize, smoothingSize));
+        this.bufferPool.add(new FrameBuffers());
+        this.changeDetector = new ChangeDetector();
+        this.registration = new PlateRegistration();
+        this.tracker = new BrickTracker();
     }
 
     /**
      * Analyses an image for bricks. This method handles reset requests for image processing.
      *
      * @param image The image to analyse
-     * @return A brick map that is either an average image (meaning it sums up all brick maps in the brick map buffer), or the
-     * detected brick map itself if not configured or the frame buffer is not full yet.
+     * @return A brick map that is either an average image (meaning it sums up all brick maps in the brick map history), or the
+     * detected brick map itself if not configured or the history is not full yet.
      * @throws ImageGridException    If no image grid was found
      * @throws InvalidImageException If the provided image is invalid
      */
     public BrickMap analyzeFrame(Mat image) throws ImageGridException, InvalidImageException {
+        validate(image);
+
+        final RecognitionFrame frame = new RecognitionFrame(0, image, System.nanoTime());
+        try {
+            prepare(frame);
+            detect(frame);
+            return translate(frame);
+        } finally {
+            release(frame);
+        }
+    }
+
+    /**
+     * Checks if an image can be analysed
+     *
+     * @param image The image to check
+     * @throws InvalidImageException If the provided image is invalid
+     */
+    static void validate(Mat image) throws InvalidImageException {
         if (image == null || image.empty()) {
             throw new InvalidImageException(InvalidImageException.EMPTY_FRAME);
         } else if (image.channels() != 3) {
             throw new InvalidImageException(InvalidImageException.CORRUPTED_FRAME);
         }
+    }
 
-        final Mat rawImage = prepareImage(image);
-        final Mat contourFrame = rawImage.clone();
+    /**
+     * First recognition stage: Crops the frame image and converts it to a binary edge image.
+     * The input image itself remains unchanged. If change detection is active and the cropped image did not change,
+     * the last result is attached to the frame for reuse and no edge image is created. If only some bars changed and
+     * tile incremental recognition is active, only the section of the changed bars is prepared.
+     *
+     * @param frame The frame to prepare
+     * @throws ImageGridException If no image grid was found
+     * @see ImageRecognizer#prepareImage(Mat, FrameBuffers, Rect)
+     */
+    void prepare(@NotNull RecognitionFrame frame) throws ImageGridException {
+        final FrameBuffers buffers = bufferPool.poll();
+        frame.buffers = (buffers != null) ? buffers : new FrameBuffers();
 
-        final ArrayList<MatOfPoint> contours = getContours(image);
-        final ArrayList<SimpleVisual> simpleVisualCandidates = getVisualObjects(contours);
+        try {
+            frame.rawImage = cropImage(frame.image);
+            if (registration.getGeneration() != plateGeneration) {
+                plateGeneration = registration.getGeneration();
+                tracksOutdated = true;
+            }
+            final BrickMap previousMap = lastBrickMap;
+            if (changeDetection && previousMap != null) {
+                if (!changeDetector.requiresAnalysis(frame.rawImage)) {
+                    frame.reusedMap = previousMap;
+                    return;
+                }
+                if (tileIncremental) selectChangedRegion(frame);
+            }
 
-        if (simpleVisualCandidates.size() <= 1) {
-            throw new ImageGridException(ImageGridException.NO_GROUND_PLATE);
+            prepareImage(frame.rawImage, frame.buffers, frame.region);
+        } catch (ImageGridException exception) {
+            invalidateLastResult();
+            throw exception;
+        }
+        frame.edges = frame.buffers.edges;
+
+        // Only every n-th frame is sampled for debug rendering, the preview background is copied before any drawing
+        if (DEBUG_RENDERER != null && preparedFrames++ % debugSampleRate == 0) {
+            frame.overlay = new DebugOverlay();
+            frame.overlay.setEdges(frame.edges);
+            if (SETTINGS.getBoolean("DEBUG_MODE_ACTIVE")) frame.overlay.setBackground(frame.rawImage);
         }
+    }
+
+    /**
+     * Second recognition stage: Finds the contours of the prepared frame and converts them to valid visual objects.
+     *
+     * @param frame The prepared frame
+     * @throws ImageGridException If no ground plate or visual objects were found
+     */
+    void detect(@NotNull RecognitionFrame frame) throws ImageGridException {
+        if (frame.reusedMap != null) return;
 
-        if (SETTINGS.getBoolean("DEBUG_MODE_ACTIVE")) {
-            Imgproc.drawContours(contourFrame, contours, -1, GridColor.RED, 2);
+        final Point offset = (frame.region != null) ? new Point(frame.region.x * processingScale, 0) : new Point();
+        frame.contours = getContours(frame, offset);
+        final ArrayList<SimpleVisual> simpleVisualCandidates;
+        try {
+            simpleVisualCandidates = getVisualObjects(frame.contours, frame.buffers);
+        } catch (ImageGridException exception) {
+            invalidateLastResult();
+            throw exception;
         }
 
-        ArrayList<SimpleVisual> simpleVisuals = removeInvalidVisualObjects(simpleVisualCandidates, image.size());
+        // Only the whole image contains the ground plate, early rejected contours count as well. The outermost
+        // contour is the image boundary, which is never a visual object.
+        final int visualCandidates = frame.contourCandidates - 1;
+        if (frame.region == null && visualCandidates <= 1) {
+            invalidateLastResult();
+            throw new ImageGridException(ImageGridException.NO_GROUND_PLATE);
+        }
 
-        final BrickMapTranslator translator = new BrickMapTranslator(image.size());
+        if (frame.overlay != null && SETTINGS.getBoolean("DEBUG_MODE_ACTIVE")) {
+            frame.overlay.addContours(frame.contours, 1 / processingScale, GridColor.RED, 2);
+        }
 
-        // Below operations regarding drawing and brick calculation are performed
-        for (SimpleVisual simpleVisual : simpleVisuals) {
-            translator.translate(simpleVisual, rawImage, contourFrame);
+        frame.visuals = removeInvalidVisualObjects(simpleVisualCandidates, frame.rawImage.size());
+    }
 
-            if (SETTINGS.getBoolean("DEBUG_MODE_ACTIVE")) {
-                VIEWER_CONTOURS.displayMat(contourFrame);
+    /**
+     * Third recognition stage: Translates the visual objects of a frame to a brick map and applies the history average,
+     * or updates the brick tracker if brick tracking is used instead. As this stage manages the brick map history and
+     * the tracker, frames must be passed in order. Unchanged frames reuse the last result without touching either.
+     *
+     * @param frame The frame containing the detected visual objects
+     * @return A brick map that is either an average image or the detected brick map itself
+     * @see ImageRecognizer#analyzeFrame(Mat)
+     */
+    BrickMap translate(@NotNull RecognitionFrame frame) {
+        if (frame.reusedMap != null) return frame.reusedMap;
+
+        final BrickMapTranslator translator = new BrickMapTranslator(frame.rawImage.size());
+        final ColorSampler colors = frame.buffers.colorSampler;
+        colors.update(frame.rawImage);
+
+        // Below operations regarding brick calculation and debug preview recording are performed
+        final DebugOverlay overlay = SETTINGS.getBoolean("DEBUG_MODE_ACTIVE") ? frame.overlay : null;
+        if (overlay != null && SETTINGS.getBoolean("DEBUG_LEVEL_FINE")) translator.describeGrid(overlay);
+        if (tracking) {
+            if (tracksOutdated) {
+                tracksOutdated = false;
+                tracker.reset();
             }
+            // Tracks outside the analysed region are kept, so no merge with the previous translation is required
+            final double columnWidth = frame.rawImage.width() / (double) BrickType.GROUND_PLATE.getWidth();
+            final double fromX = (frame.region != null && frame.firstColumn != Integer.MIN_VALUE) ?
+                    frame.firstColumn * columnWidth : Double.NEGATIVE_INFINITY;
+            final double toX = (frame.region != null && frame.endColumn != Integer.MAX_VALUE) ?
+                    frame.endColumn * columnWidth : Double.POSITIVE_INFINITY;
+            tracker.update(frame.visuals, frame.rawImage.size(), fromX, toX, translator, colors, overlay);
+            tracker.place(translator);
+        } else {
+            translator.translateAll(frame.visuals, colors, overlay);
+        }
+        if (frame.overlay != null && DEBUG_RENDERER != null) {
+            DEBUG_RENDERER.submit(frame.overlay);
+            frame.overlay = null;
+        }
+
+        // Bricks outside the analysed region are taken from the previous frame
+        if (frame.region != null && !tracking) {
+            translator.merge(frame.previousTranslation, frame.firstColumn, frame.endColumn);
         }
+        lastTranslation = translator.getTranslation();
+
+        // Confirmed tracks replace the history average
+        if (tracking) return publish(translator.get().freeze());
 
         // The brick map returned will probably not be equal to the average brick map
-        // Unless the brick map buffer is filled up, the original non-average map will be used to increase stability
-        if (brickMapBuffer.size() >= SETTINGS.getInt("FRAME_BUFFER_SIZE")) brickMapBuffer.remove(0);
-        final BrickMap capturedMap = translator.get();
-        brickMapBuffer.add(capturedMap);
+        // Unless the brick map history is filled up, the original non-average map will be used to increase stability
+        final BrickMap capturedMap = translator.get().freeze();
+        history.add(capturedMap);
 
         // If the returned map shall be used from average is depending on configuration
-        if (SETTINGS.getBoolean("USE_HISTORY_AVERAGE")) {
-            return (brickMapBuffer.size() < SETTINGS.getInt("FRAME_BUFFER_SIZE")) ? capturedMap :
-                    BrickMap.getAverageBrickMap(brickMapBuffer);
-        } else {
-            return capturedMap;
+        if (historyAverage) {
+            return publish(history.isFull() ? history.getAverage().freeze() : capturedMap);
         }
+        return publish(capturedMap);
+    }
+
+    /**
+     * Stores the result of the translation stage. If the bricks changed, the plate registration takes a new drift
+     * reference, as the old one no longer shows the scene.
+     *
+     * @param map The frozen resulting map
+     * @return The map
+     */
+    private BrickMap publish(@NotNull BrickMap map) {
+        final BrickMap previousMap = lastBrickMap;
+        if (previousMap != null && BrickMapDiff.between(previousMap, map).getChangedColumns() != 0) {
+            registration.refreshReference();
+        }
+        lastBrickMap = map;
+        return map;
+    }
+
+    /**
+     * @return True if unchanged frames reuse the last result, which requires frames to be prepared in order of their
+     * translation
+     */
+    boolean detectsChanges() {
+        return changeDetection;
+    }
+
+    /**
+     * Stops the debug rendering of analysed frames, frames analysed afterward start it again
+     */
+    void terminate() {
+        if (DEBUG_RENDERER != null) DEBUG_RENDERER.terminate();
+    }
+
+    /**
+     * Discards the last result after a failed analysis, so that upcoming frames are analysed regardless of changes
+     */
+    private void invalidateLastResult() {
+        lastBrickMap = null;
+        lastTranslation = null;
+        changeDetector.reset();
+        tracksOutdated = true;
+    }
+
+    /**
+     * Restricts the analysis of a frame to the bars that changed since the scene was last stable. The region is
+     * extended by a margin, bricks starting in the margin are taken from the previous translation.
+     * If all bars changed, or no previous translation is available, the frame is analysed entirely.
+     *
+     * @param frame The frame containing the cropped image
+     */
+    private void selectChangedRegion(@NotNull RecognitionFrame frame) {
+        final BrickMap previousTranslation = lastTranslation;
+        final int bars = changeDetector.getPendingBars();
+        if (previousTranslation == null || bars == 0 || bars == ChangeDetector.ALL_BARS) return;
+
+        final int barLength = BrickType.GROUND_PLATE.getWidth() / ChangeDetector.BARS;
+        final int firstBar = Integer.numberOfTrailingZeros(bars);
+        final int lastBar = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(bars);
+        final int firstColumn = firstBar * barLength, endColumn = (lastBar + 1) * barLength;
+
+        final int width = frame.rawImage.width();
+        final double columnWidth = (double) width / BrickType.GROUND_PLATE.getWidth();
+        final int regionStart = Math.max(0, (int) ((firstColumn - TILE_MARGIN_COLUMNS) * columnWidth));
+        final int regionEnd = Math.min(width, (int) Math.ceil((endColumn + TILE_MARGIN_COLUMNS) * columnWidth));
+        if (regionStart == 0 && regionEnd == width) return;
+
+        frame.region = new Rect(regionStart, 0, regionEnd - regionStart, frame.rawImage.height());
+        // Outer bars also cover bricks that were moved beyond the plate border during translation
+        frame.firstColumn = (firstBar == 0) ? Integer.MIN_VALUE : firstColumn;
+        frame.endColumn = (lastBar == ChangeDetector.BARS - 1) ? Integer.MAX_VALUE : endColumn;
+        frame.previousTranslation = previousTranslation;
+    }
+
+    /**
+     * Returns the buffers of a frame to the buffer pool and releases its contours and ground plate view.
+     * The frame must not be used afterward.
+     *
+     * @param frame The frame to release
+     */
+    void release(@NotNull RecognitionFrame frame) {
+        if (frame.overlay != null) {
+            frame.overlay.release();
+            frame.overlay = null;
+        }
+        if (frame.rawImage != null) {
+            frame.rawImage.release();
+            frame.rawImage = null;
+        }
+        if (frame.contours != null) {
+            frame.contours.forEach(Mat::release);
+            frame.contours = null;
+        }
+        if (frame.buffers != null) {
+            bufferPool.add(frame.buffers);
+            frame.buffers = null;
+        }
+    }
+
+    /**
+     * Adapts the size of a kernel designed for full size images to the processing scale
+     *
+     * @param size The kernel size at full scale
+     * @return The odd kernel size at processing scale, at least 3
+     */
+    private int scaleKernelSize(int size) {
+        final int scaled = (int) Math.round(size * processingScale);
+        return Math.max(3, scaled | 1);
     }
 
     /**
@@ -135,97 +525,227 @@ public class ImageRecognizer {
     }
 
     /**
-     * Rotates and crops the image to match the ground plate section and recolors the background plate. The input image
-     * will be converted to a binary image.
+     * Crops the image to match the registered ground plate section.
      * If set, assure that the boundary paper is bigger than the ground plate, but does not interfere with image borders
      *
-     * @param image The image to prepare and adapt
-     * @return The rotated and cropped original image without binary conversion or special editing
+     * @param image The image to crop, remains unchanged
+     * @return A view of the ground plate section of the image without binary conversion or special editing
      * @throws ImageGridException If no grid was found
+     * @see PlateRegistration
      */
     @NotNull
-    @Contract("_ -> new")
-    private Mat prepareImage(final @NotNull Mat image) throws ImageGridException {
+    private Mat cropImage(final @NotNull Mat image) throws ImageGridException {
         try {
-            final Mat copy = new Mat();
-
-            ImageProcessing.cropImage(image);
-            image.copyTo(copy);
-
-            // Contrast increase and blurring is required to remove unoccupied ground plate pins from being detected.
-            image.convertTo(image, CvType.CV_8UC3, 1.2, 12);
-            Imgproc.medianBlur(image, image, 17);
-
-            // CANNY is performed within two different ranges, one for detecting the general rectangle and circle
-            // contours and one for specifically detailed circle detection. Both are merged afterward.
-            Mat generalRange = new Mat(), circleRange = new Mat();
-            Imgproc.Canny(image, generalRange, 90, 70, 3, true);
-            Imgproc.Canny(image, circleRange, 100, 260, 3, true);
-
-            Core.bitwise_or(circleRange, generalRange, generalRange);
+            return registration.getPlate(image);
+        } catch (ArrayIndexOutOfBoundsException | CvException exception) {
+            if (SETTINGS.getBoolean("DEBUG_LEVEL_FINE")) {
+                LOGGER.log(Level.INFO, "Image preparation: No ground plate candidate found", exception);
+            }
+            throw new ImageGridException(ImageGridException.NO_GROUND_PLATE);
+        }
+    }
 
-            Imgproc.morphologyEx(generalRange, generalRange, Imgproc.MORPH_DILATE,
-                    Imgproc.getStructuringElement(Imgproc.MORPH_RECT,
-                            new Size(3, 3)));
+    /**
+     * Converts the cropped image to a binary edge image, which is downscaled according to the processing scale.
+     *
+     * @param rawImage The cropped image, remains unchanged
+     * @param buffers  The buffers of the analysed frame. Afterward, the edges buffer contains the binary image at
+     *                 processing scale.
+     * @param region   The section of the cropped image to convert, null to convert the whole image
+     * @throws ImageGridException If no grid was found
+     */
+    private void prepareImage(final @NotNull Mat rawImage, final @NotNull FrameBuffers buffers, final Rect region)
+            throws ImageGridException {
+        final Mat section = (region != null) ? rawImage.submat(region) : rawImage;
+        try {
+            // Edges are detected on a downscaled copy, the raw image keeps full resolution for color sampling
+            Mat source = section;
+            if (processingScale < 1) {
+                Imgproc.resize(section, buffers.scaled, new Size(), processingScale, processingScale,
+                        Imgproc.INTER_AREA);
+                source = buffers.scaled;
+            }
 
-            generalRange.copyTo(image);
-            VIEWER_PROCESSED.displayMat(generalRange);
+            if (grayscaleEdges) {
+                prepareGrayscaleEdges(source, buffers);
+            } else {
+                prepareColorEdges(source, buffers);
+            }
 
-            return copy;
+            Imgproc.morphologyEx(buffers.edges, buffers.edges, Imgproc.MORPH_DILATE, dilationKernel);
         } catch (ArrayIndexOutOfBoundsException | CvException exception) {
             if (SETTINGS.getBoolean("DEBUG_LEVEL_FINE")) {
                 LOGGER.log(Level.INFO, "Image preparation: No ground plate candidate found", exception);
             }
             throw new ImageGridException(ImageGridException.NO_GROUND_PLATE);
+        } finally {
+            if (section != rawImage) section.release();
         }
     }
 
     /**
-     * Reads an image and finds the contained contours
+     * Creates the binary edge image from the full color cropped image
      *
-     * @param image The image to analyse
+     * @param source  The cropped image at processing scale
+     * @param buffers The buffers of the analysed frame, the edge image is written to the edges buffer
+     */
+    private void prepareColorEdges(@NotNull Mat source, @NotNull FrameBuffers buffers) {
+        // Contrast increase and blurring is required to remove unoccupied ground plate pins from being detected.
+        source.convertTo(buffers.work, CvType.CV_8UC3, 1.2, 12);
+        Imgproc.medianBlur(buffers.work, buffers.work, medianBlurSize);
+
+        // CANNY is performed within two different ranges, one for detecting the general rectangle and circle
+        // contours and one for specifically detailed circle detection. Both are merged afterward.
+        Imgproc.Canny(buffers.work, buffers.edges, 90, 70, 3, true);
+        Imgproc.Canny(buffers.work, buffers.circleEdges, 100, 260, 3, true);
+
+        Core.bitwise_or(buffers.circleEdges, buffers.edges, buffers.edges);
+    }
+
+    /**
+     * Creates the binary edge image from a single grayscale conversion of the cropped image. Color information is only
+     * kept in the raw buffer, which is used for color sampling.
+     *
+     * @param source  The cropped image at processing scale
+     * @param buffers The buffers of the analysed frame, the edge image is written to the edges buffer
+     */
+    private void prepareGrayscaleEdges(@NotNull Mat source, @NotNull FrameBuffers buffers) {
+        // The grayscale image describes the color distance to the ground plate, which covers most of the image.
+        // A plain luminance conversion would lose bricks of similar brightness as the plate (e.g. white on yellow).
+        Core.absdiff(source, Core.mean(source), buffers.work);
+        Core.transform(buffers.work, buffers.gray, grayscaleWeights);
+
+        // Opening and closing with a rectangular (separable) kernel removes the thin ground plate pin outlines
+        // similar to the median blur of the color pipeline, while keeping brick edges sharp.
+        Imgproc.morphologyEx(buffers.gray, buffers.gray, Imgproc.MORPH_OPEN, smoothingKernel);
+        Imgproc.morphologyEx(buffers.gray, buffers.gray, Imgproc.MORPH_CLOSE, smoothingKernel);
+
+        // A single CANNY pass replaces the merged general and circle ranges of the color pipeline
+        Imgproc.Canny(buffers.gray, buffers.edges, 50, 90, 3, true);
+    }
+
+    /**
+     * Finds the contours of the prepared frame. Contours that are discarded are released immediately, contours remain
+     * at processing scale.
+     * Contours are rejected early, before any visual object is created, if they are too short, if their bounding box
+     * proves that their visual object would be discarded anyway, or if they are the inner edge of a closed outline
+     * already represented by its outer edge.
+     *
+     * @param frame  The prepared frame, the number of contour candidates is stored to the frame
+     * @param offset Position of the binary image within the downscaled cropped image, added to all contour points
      * @return Analysed contours
+     * @see ImageRecognizer#removeInvalidVisualObjects(ArrayList, Size)
      */
     @NotNull
-    private ArrayList<MatOfPoint> getContours(@NotNull Mat image) {
+    private ArrayList<MatOfPoint> getContours(@NotNull RecognitionFrame frame, @NotNull Point offset) {
+        final Mat image = frame.edges;
+        final FrameBuffers buffers = frame.buffers;
         final ArrayList<MatOfPoint> contours = new ArrayList<>();
         final ArrayList<MatOfPoint> approximatedContours = new ArrayList<>();
 
         // Add boundary contour to allow on-edge bricks to be identified
-        final int offset = 2; // offset from image boundary
-        final Point[] points = {new Point(offset, offset), new Point(image.width() - offset, offset),
-                new Point(image.width() - offset, image.height() - offset), new Point(offset,
-                image.height() - offset)};
-        Imgproc.drawContours(image, List.of(new MatOfPoint(points)), -1, GridColor.WHITE, 1);
-        Imgproc.findContours(image, contours, new Mat(), Imgproc.RETR_LIST, Imgproc.CHAIN_APPROX_SIMPLE);
+        final int boundaryOffset = 2; // offset from image boundary
+        Imgproc.rectangle(image, new Point(boundaryOffset, boundaryOffset),
+                new Point(image.width() - boundaryOffset, image.height() - boundaryOffset), GridColor.WHITE, 1);
+        Imgproc.findContours(image, contours, buffers.hierarchy, Imgproc.RETR_CCOMP, Imgproc.CHAIN_APPROX_SIMPLE,
+                offset);
+
+        // Hierarchy entries consist of next, previous, first child and parent contour
+        final int[] hierarchy = new int[contours.size() * 4];
+        if (!contours.isEmpty()) buffers.hierarchy.get(0, 0, hierarchy);
+        final Rect[] bounds = new Rect[contours.size()];
+        for (int i = 0; i < contours.size(); i++) {
+            bounds[i] = Imgproc.boundingRect(contours.get(i));
+        }
+
+        // Long contours are straightened, the length is relative to the whole image even if only a section is analysed
+        final double approximationLength = frame.rawImage.width() * processingScale / 3;
 
         // Approximate contours to straighten lines
-        for (MatOfPoint contour : contours) {
-            MatOfPoint2f newContour = new MatOfPoint2f(contour.toArray());
-            if (Imgproc.arcLength(newContour, false) < MINIMAL_CONTOUR_LENGTH) continue;
-            if (Imgproc.arcLength(newContour, true) > (double) image.width() / 3) {
-                Imgproc.approxPolyDP(newContour, newContour, 5, true);
-                approximatedContours.add(new MatOfPoint(newContour.toArray()));
-            } else {
-                approximatedContours.add(contour);
+        final MatOfPoint2f newContour = buffers.contour;
+        int candidates = 0;
+        for (int i = 0; i < contours.size(); i++) {
+            final MatOfPoint contour = contours.get(i);
+            contour.convertTo(newContour, CvType.CV_32F);
+            if (Imgproc.arcLength(newContour, false) < MINIMAL_CONTOUR_LENGTH * processingScale) {
+                contour.release();
+                continue;
+            }
+            candidates++;
+
+            final int parent = hierarchy[i * 4 + 3];
+            if (isInvalidContour(bounds[i], frame.rawImage.size()) ||
+                    (parent >= 0 && isDuplicateEdge(bounds[i], bounds[parent]))) {
+                contour.release();
+                continue;
+            }
+
+            if (Imgproc.arcLength(newContour, true) > approximationLength) {
+                Imgproc.approxPolyDP(newContour, buffers.approximation,
+                        Math.max(1, CONTOUR_APPROXIMATION_EPSILON * processingScale), true);
+                buffers.approximation.convertTo(contour, CvType.CV_32S);
             }
+            approximatedContours.add(contour);
         }
 
+        frame.contourCandidates = candidates;
         return approximatedContours;
     }
 
     /**
-     * Converts MatOfPoint-Contours into visual objects.
+     * Checks if the visual object of a contour would be discarded due to its size or position, only based on the
+     * bounding box of the contour. The minimal area rectangle of the contour lies within the bounding box, its shorter
+     * side is at most the shorter bounding box side times the square root of two.
+     *
+     * @param bounds The bounding box of the contour at processing scale
+     * @param plate  Size of the cropped image
+     * @return True if the contour can be discarded, False if it has to be evaluated as visual object
+     * @see ImageRecognizer#removeInvalidVisualObjects(ArrayList, Size)
+     */
+    private boolean isInvalidContour(@NotNull Rect bounds, @NotNull Size plate) {
+        final int border = 10;
+
+        // Extents between the outermost contour points at full scale
+        final double left = bounds.x / processingScale, top = bounds.y / processingScale;
+        final double width = (bounds.width - 1) / processingScale, height = (bounds.height - 1) / processingScale;
+
+        return Math.min(width, height) * Math.sqrt(2) < MINIMUM_VISUAL_OBJECT_SIZE ||
+                (width < MINIMUM_VISUAL_OBJECT_SIZE && height < MINIMUM_VISUAL_OBJECT_SIZE) ||
+                left + width <= border || top + height <= border ||
+                left >= plate.width - border || top >= plate.height - border;
+    }
+
+    /**
+     * Checks if a hole contour is the inner edge of the outline of its parent contour, i.e. both contours describe the
+     * same object
+     *
+     * @param hole   The bounding box of the hole contour
+     * @param parent The bounding box of the enclosing contour
+     * @return True if the hole duplicates the enclosing contour
+     */
+    private boolean isDuplicateEdge(@NotNull Rect hole, @NotNull Rect parent) {
+        final double tolerance = DUPLICATE_EDGE_DISTANCE * processingScale;
+        return hole.x - parent.x <= tolerance && hole.y - parent.y <= tolerance &&
+                (parent.x + parent.width) - (hole.x + hole.width) <= tolerance &&
+                (parent.y + parent.height) - (hole.y + hole.height) <= tolerance;
+    }
+
+    /**
+     * Converts MatOfPoint-Contours into visual objects. The visual objects are scaled back to the size of the
+     * cropped image, so grid snapping and color sampling work on full resolution.
      * Unnecessary objects like image-border contours are removed in this step.
      *
      * @param contours The contours to analyse
+     * @param buffers  The buffers of the analysed frame
      * @return A pair of gathered visual objects and the original contours
      */
     @NotNull
-    private ArrayList<SimpleVisual> getVisualObjects(@NotNull ArrayList<MatOfPoint> contours) throws ImageGridException {
+    private ArrayList<SimpleVisual> getVisualObjects(@NotNull ArrayList<MatOfPoint> contours,
+                                                     @NotNull FrameBuffers buffers) throws ImageGridException {
         final ArrayList<SimpleVisual> simpleVisuals = new ArrayList<>();
         for (MatOfPoint contour : contours) {
-            final SimpleVisual visual = new SimpleVisual(Imgproc.minAreaRect(new MatOfPoint2f(contour.toArray())));
+            contour.convertTo(buffers.contour, CvType.CV_32F, 1 / processingScale);
+            final SimpleVisual visual = new SimpleVisual(Imgproc.minAreaRect(buffers.contour));
             visual.normalize();
             simpleVisuals.add(visual);
         }
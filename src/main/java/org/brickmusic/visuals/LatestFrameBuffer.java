@@ -0,0 +1,75 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free single slot handoff between a frame producer (capture) and a frame consumer (recognition).
+ * Only the most recent frame is kept, older frames that were not taken in time are replaced ("latest frame wins").
+ * Replaced and consumed frames are recycled as capture targets to avoid allocating a new frame on every grab.
+ */
+public class LatestFrameBuffer {
+
+    /**
+     * The most recently offered frame that has not been taken yet
+     */
+    private final AtomicReference<Mat> latest = new AtomicReference<>();
+
+    /**
+     * A spare frame that can be reused as capture target
+     */
+    private final AtomicReference<Mat> spare = new AtomicReference<>();
+
+    /**
+     * Publishes a new frame, a previously published frame that has not been taken yet is recycled
+     *
+     * @param frame The frame to publish
+     */
+    public void offer(@NotNull Mat frame) {
+        final Mat replaced = latest.getAndSet(frame);
+        if (replaced != null) recycle(replaced);
+    }
+
+    /**
+     * Takes the most recent frame out of the buffer. The caller owns the frame and should hand it back using
+     * recycle() after processing.
+     *
+     * @return The most recent frame or null if no new frame was published since the last call
+     * @see LatestFrameBuffer#recycle(Mat)
+     */
+    @Nullable
+    public Mat take() {
+        return latest.getAndSet(null);
+    }
+
+    /**
+     * Hands a frame back to the buffer so that it can be reused as capture target. If a spare frame is already
+     * available the given frame is released.
+     *
+     * @param frame The frame that is no longer used
+     */
+    public void recycle(@NotNull Mat frame) {
+        if (!spare.compareAndSet(null, frame)) frame.release();
+    }
+
+    /**
+     * @return A recycled frame if available, a new empty frame otherwise
+     */
+    @NotNull
+    public Mat obtain() {
+        final Mat frame = spare.getAndSet(null);
+        return (frame != null) ? frame : new Mat();
+    }
+
+    /**
+     * Releases all frames held by this buffer
+     */
+    public void clear() {
+        final Mat frame = latest.getAndSet(null), spareFrame = spare.getAndSet(null);
+        if (frame != null) frame.release();
+        if (spareFrame != null) spareFrame.release();
+    }
+}
@@ -0,0 +1,208 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.*;
+import org.opencv.imgproc.Imgproc;
+
+import java.util.logging.Logger;
+
+import static org.brickmusic.Main.SETTINGS;
+
+/**
+ * The plate registration locates the ground plate section within camera frames. The section is calculated once from
+ * the crop area configuration and then only updated if the camera is moved. Ground plate sections are returned as
+ * views of the camera frame, the frame content is not copied.<br><br>
+ * Camera movements are detected by phase correlation of a downsampled grayscale version of the section with a
+ * reference taken upon registration. Only every few frames are correlated and only drifts that persist for several
+ * correlations move the section, so that hands or placed bricks do not cause a re-registration. The reference is
+ * taken again once the recognized scene changed, the drift measured until then is kept as offset of the new reference.
+ *
+ * @see <a href="https://docs.opencv.org/4.x/javadoc/org/opencv/imgproc/Imgproc.html#phaseCorrelate(org.opencv.core.Mat,org.opencv.core.Mat,org.opencv.core.Mat)">Imgproc.phaseCorrelate</a>
+ */
+class PlateRegistration {
+    private static final Logger LOGGER = Logger.getLogger(PlateRegistration.class.getName());
+
+    /**
+     * Width of the downsampled image used for drift detection
+     */
+    private static final int DRIFT_SAMPLE_WIDTH = 160;
+
+    /**
+     * Number of consecutive frames a drift must be measured before the section is moved
+     */
+    private static final int DRIFT_CONFIRMATION_FRAMES = 5;
+
+    /**
+     * Number of frames between two drift measurements
+     */
+    private static final int DRIFT_SAMPLE_INTERVAL = 10;
+
+    /**
+     * Camera movement in pixels that is tolerated before the section is moved, 0 disables drift tracking
+     */
+    private final int driftTolerance;
+
+    /**
+     * Size of the frames the current crop area was calculated for
+     */
+    private Size frameSize;
+
+    /**
+     * The ground plate section of the frames
+     */
+    private Rect cropArea;
+
+    /**
+     * Downsampled grayscale section taken upon registration
+     */
+    private final Mat reference = new Mat();
+
+    /**
+     * Downsampled grayscale section of the current frame
+     */
+    private final Mat sample = new Mat();
+
+    /**
+     * Window function applied during phase correlation to reduce border effects
+     */
+    private final Mat window = new Mat();
+
+    /**
+     * Drift of the plate in pixels at the time the reference was taken, relative to the current section
+     */
+    private Point referenceOffset = new Point();
+
+    /**
+     * Most recently measured drift of the plate in pixels, relative to the current section
+     */
+    private Point drift = new Point();
+
+    /**
+     * Set if the scene changed and the reference has to be taken again upon the next drift measurement
+     */
+    private volatile boolean referenceOutdated = false;
+
+    /**
+     * Number of consecutive drift measurements above the tolerance
+     */
+    private int driftFrames = 0;
+
+    /**
+     * Number of times the section was calculated or moved
+     */
+    private volatile int generation = 0;
+
+    /**
+     * Number of frames since the section was calculated or moved, used to sample frames for drift measurements
+     */
+    private int frameCount = 0;
+
+    /**
+     * Creates a plate registration using PLATE_DRIFT_TOLERANCE of the settings, a missing or negative tolerance
+     * disables drift tracking
+     */
+    PlateRegistration() {
+        this.driftTolerance = Math.max(0, SETTINGS.getInt("PLATE_DRIFT_TOLERANCE"));
+    }
+
+    /**
+     * Returns the ground plate section of a frame. If the frame size changed, the plate is registered again.
+     * The returned view shares the data of the frame and must be released before the frame is reused.
+     *
+     * @param image The camera frame
+     * @return A view of the ground plate section
+     * @throws CvException If the ground plate section does not lie within the frame
+     */
+    @NotNull
+    Mat getPlate(@NotNull Mat image) {
+        if (!image.size().equals(frameSize)) register(image.size());
+
+        final Mat plate = image.submat(cropArea);
+        if (driftTolerance > 0 && frameCount++ % DRIFT_SAMPLE_INTERVAL == 0) trackDrift(plate);
+        return plate;
+    }
+
+    /**
+     * Requests a new drift reference, e.g. because bricks were placed or removed. The reference is taken upon the next
+     * drift measurement.
+     */
+    void refreshReference() {
+        referenceOutdated = true;
+    }
+
+    /**
+     * @return A number which changes whenever the ground plate section is calculated or moved, positions found within
+     * previous sections do not apply anymore
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Calculates the ground plate section for a frame size from the crop area configuration
+     *
+     * @param size The frame size
+     */
+    private void register(@NotNull Size size) {
+        frameSize = size;
+        cropArea = ImageProcessing.getCropArea(size);
+        resetDrift();
+        generation++;
+    }
+
+    /**
+     * Discards the reference and all measured drift, e.g. because the section was moved
+     */
+    private void resetDrift() {
+        reference.release();
+        referenceOffset = new Point();
+        drift = new Point();
+        driftFrames = 0;
+        frameCount = 0;
+    }
+
+    /**
+     * Measures the drift of the ground plate compared to the reference and moves the section if a drift is confirmed.
+     * The moved section is used starting with the next frame.
+     *
+     * @param plate The current ground plate section
+     */
+    private void trackDrift(@NotNull Mat plate) {
+        final double scale = (double) DRIFT_SAMPLE_WIDTH / plate.width();
+        Imgproc.cvtColor(plate, sample, Imgproc.COLOR_BGR2GRAY);
+        Imgproc.resize(sample, sample, new Size(), scale, scale, Imgproc.INTER_AREA);
+        sample.convertTo(sample, CvType.CV_32F);
+
+        if (reference.empty() || !reference.size().equals(sample.size())) {
+            sample.copyTo(reference);
+            Imgproc.createHanningWindow(window, sample.size(), CvType.CV_32F);
+            referenceOutdated = false;
+            return;
+        }
+        if (referenceOutdated) {
+            // Correlating the changed scene with the old reference would be distorted by the changed bricks
+            sample.copyTo(reference);
+            referenceOffset = drift;
+            referenceOutdated = false;
+            return;
+        }
+
+        final Point shift = Imgproc.phaseCorrelate(reference, sample, window);
+        drift = new Point(referenceOffset.x + shift.x / scale, referenceOffset.y + shift.y / scale);
+        final double driftX = drift.x, driftY = drift.y;
+        if (Math.hypot(driftX, driftY) <= driftTolerance) {
+            driftFrames = 0;
+            return;
+        }
+        if (++driftFrames < DRIFT_CONFIRMATION_FRAMES) return;
+
+        // Move the section along with the plate, but keep it within the frame
+        final int x = (int) Math.round(cropArea.x + driftX), y = (int) Math.round(cropArea.y + driftY);
+        cropArea = new Rect(Math.max(0, Math.min(x, (int) frameSize.width - cropArea.width)),
+                Math.max(0, Math.min(y, (int) frameSize.height - cropArea.height)), cropArea.width, cropArea.height);
+        resetDrift();
+        generation++;
+        LOGGER.info("Ground plate drift detected: Moved plate section by " + Math.round(driftX) + "," +
+                Math.round(driftY) + " to " + cropArea);
+    }
+}
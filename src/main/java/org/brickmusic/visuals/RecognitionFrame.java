@@ -0,0 +1,118 @@
+package org.brickmusic.visuals;
+
+import org.brickmusic.bricklogic.BrickMap;
+import org.brickmusic.view.DebugOverlay;
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfPoint;
+import org.opencv.core.Rect;
+
+import java.util.ArrayList;
+
+/**
+ * Intermediate state of a single frame passing the recognition stages of an ImageRecognizer.
+ *
+ * @see ImageRecognizer#prepare(RecognitionFrame)
+ * @see ImageRecognizer#detect(RecognitionFrame)
+ * @see ImageRecognizer#translate(RecognitionFrame)
+ */
+class RecognitionFrame {
+
+    /**
+     * Ascending number of the frame, used to ensure frame ordering
+     */
+    final long sequence;
+
+    /**
+     * The input image
+     */
+    final Mat image;
+
+    /**
+     * Point in time (System.nanoTime()) at which the frame was taken for analysis
+     */
+    final long start;
+
+    /**
+     * Native buffers used for the analysis of this frame
+     */
+    FrameBuffers buffers;
+
+    /**
+     * The ground plate section of the input image used for color detection, a view sharing the input image data
+     */
+    Mat rawImage;
+
+    /**
+     * The binary edge image of the cropped image
+     */
+    Mat edges;
+
+    /**
+     * Debug preview of this frame, null if the frame is not sampled for debug rendering
+     */
+    DebugOverlay overlay;
+
+    /**
+     * Contours found in the prepared image
+     */
+    ArrayList<MatOfPoint> contours;
+
+    /**
+     * Number of contours long enough to be considered, including contours rejected before visual object creation
+     */
+    int contourCandidates;
+
+    /**
+     * Valid visual objects found in the contours
+     */
+    ArrayList<SimpleVisual> visuals;
+
+    /**
+     * Section of the cropped image that is analysed, null if the whole image is analysed
+     */
+    Rect region;
+
+    /**
+     * First ground plate column translated from the analysed region
+     */
+    int firstColumn;
+
+    /**
+     * Ground plate column after the last column translated from the analysed region
+     */
+    int endColumn;
+
+    /**
+     * Translation of a previous frame providing the bricks outside the analysed region
+     */
+    BrickMap previousTranslation;
+
+    /**
+     * Result of a previous frame, set if this frame did not change compared to previously analysed frames.
+     * Unchanged frames skip detection and translation and reuse this result instead.
+     *
+     * @see ChangeDetector
+     */
+    BrickMap reusedMap;
+
+    /**
+     * Set once the input image was handed back by a recognition pipeline
+     *
+     * @see RecognitionPipeline
+     */
+    volatile boolean released = false;
+
+    /**
+     * Creates a new frame state for a given input image
+     *
+     * @param sequence The number of the frame
+     * @param image    The input image
+     * @param start    Point in time (System.nanoTime()) at which the frame was taken for analysis
+     */
+    RecognitionFrame(long sequence, @NotNull Mat image, long start) {
+        this.sequence = sequence;
+        this.image = image;
+        this.start = start;
+    }
+}
@@ -0,0 +1,244 @@
+package org.brickmusic.visuals;
+
+import org.brickmusic.bricklogic.BrickMap;
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A recognition pipeline runs the stages of an ImageRecognizer on separate threads, so that consecutive frames are
+ * processed concurrently (e.g. a frame is edge-filtered while its predecessor is being translated).
+ * Stages are joined by bounded queues. Frames keep their order, if a stage cannot keep up the oldest waiting
+ * frame is dropped in favour of the newer one.
+ *
+ * @see ImageRecognizer#prepare(RecognitionFrame)
+ * @see ImageRecognizer#detect(RecognitionFrame)
+ * @see ImageRecognizer#translate(RecognitionFrame)
+ */
+public class RecognitionPipeline {
+    private static final Logger LOGGER = Logger.getLogger(RecognitionPipeline.class.getName());
+
+    /**
+     * Capacity of the queues between stages. Small queues keep the latency low.
+     */
+    private static final int QUEUE_CAPACITY = 1;
+
+    /**
+     * Receives the results of the pipeline
+     */
+    public interface Listener {
+        /**
+         * Called upon a successfully analysed frame
+         *
+         * @param map   The resulting brick map
+         * @param start Point in time (System.nanoTime()) at which the frame was submitted
+         */
+        void onRecognized(@NotNull BrickMap map, long start);
+
+        /**
+         * Called if the analysis of a frame failed
+         *
+         * @param exception The exception thrown by the failing stage
+         * @param start     Point in time (System.nanoTime()) at which the frame was submitted
+         */
+        void onFailure(@NotNull Exception exception, long start);
+    }
+
+    /**
+     * The recognizer providing the stages
+     */
+    private final ImageRecognizer recognizer;
+
+    /**
+     * Result listener
+     */
+    private final Listener listener;
+
+    /**
+     * Receives input frames which are no longer used by the pipeline
+     */
+    private final Consumer<Mat> frameRecycler;
+
+    private final BlockingQueue<RecognitionFrame> prepareQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<RecognitionFrame> detectQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final BlockingQueue<RecognitionFrame> translateQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+    /**
+     * Threads running the stages
+     */
+    private final List<Thread> stages = new ArrayList<>();
+
+    /**
+     * Set upon termination, frames submitted afterward are handed back immediately
+     */
+    private volatile boolean terminated = false;
+
+    /**
+     * Sequence number of the next submitted frame
+     */
+    private long nextSequence = 0;
+
+    /**
+     * Sequence number of the last frame leaving the pipeline
+     */
+    private long lastSequence = -1;
+
+    /**
+     * Creates and starts a new recognition pipeline. Recognizers using change detection are rejected: their prepare
+     * stage compares frames to the last result, which is outdated while earlier frames are still in later stages.
+     *
+     * @param recognizer    The recognizer providing the recognition stages
+     * @param listener      The listener to inform about results
+     * @param frameRecycler Receives input frames after they passed or were dropped from the pipeline
+     * @throws IllegalArgumentException If the recognizer uses change detection
+     */
+    public RecognitionPipeline(@NotNull ImageRecognizer recognizer, @NotNull Listener listener,
+                               @NotNull Consumer<Mat> frameRecycler) {
+        if (recognizer.detectsChanges()) {
+            throw new IllegalArgumentException("Change detection cannot be combined with pipelined recognition");
+        }
+        this.recognizer = recognizer;
+        this.listener = listener;
+        this.frameRecycler = frameRecycler;
+
+        startStage("Prepare", prepareQueue, frame -> {
+            recognizer.prepare(frame);
+            handOver(detectQueue, frame);
+        });
+        startStage("Detect", detectQueue, frame -> {
+            recognizer.detect(frame);
+            handOver(translateQueue, frame);
+        });
+        startStage("Translate", translateQueue, frame -> {
+            if (frame.sequence <= lastSequence) {
+                release(frame);
+                return;
+            }
+            lastSequence = frame.sequence;
+            final BrickMap map = recognizer.translate(frame);
+            release(frame);
+            listener.onRecognized(map, frame.start);
+        });
+    }
+
+    /**
+     * Submits a new frame to the pipeline. If the pipeline is busy, the oldest waiting frame is dropped.
+     * The frame is handed to the frame recycler once it is no longer used.
+     *
+     * @param image The frame to analyse
+     */
+    public void submit(@NotNull Mat image) {
+        final long start = System.nanoTime();
+        if (terminated) {
+            frameRecycler.accept(image);
+            return;
+        }
+        try {
+            ImageRecognizer.validate(image);
+        } catch (InvalidImageException e) {
+            frameRecycler.accept(image);
+            listener.onFailure(e, start);
+            return;
+        }
+        handOver(prepareQueue, new RecognitionFrame(nextSequence++, image, start));
+
+        // Stages no longer take frames after termination, frames submitted concurrently are released here
+        if (terminated) {
+            RecognitionFrame frame;
+            while ((frame = prepareQueue.poll()) != null) release(frame);
+        }
+    }
+
+    /**
+     * Stops all stages of the pipeline. Stages finish the frame they are processing, the remaining frames are released
+     * once all stages have exited.
+     */
+    public void terminate() {
+        terminated = true;
+        stages.forEach(Thread::interrupt);
+        for (Thread stage : stages) {
+            try {
+                stage.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warning("Recognition pipeline termination interrupted, waiting frames are not released");
+                return;
+            }
+        }
+        for (BlockingQueue<RecognitionFrame> queue : List.of(prepareQueue, detectQueue, translateQueue)) {
+            RecognitionFrame frame;
+            while ((frame = queue.poll()) != null) release(frame);
+        }
+    }
+
+    /**
+     * A single stage operation
+     */
+    private interface Stage {
+        void process(@NotNull RecognitionFrame frame) throws Exception;
+    }
+
+    /**
+     * Starts a thread continuously processing the frames of the given queue
+     *
+     * @param name  The name of the stage
+     * @param input The queue to take frames from
+     * @param stage The operation to perform on each frame
+     */
+    private void startStage(String name, BlockingQueue<RecognitionFrame> input, Stage stage) {
+        final Thread thread = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                final RecognitionFrame frame;
+                try {
+                    frame = input.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    stage.process(frame);
+                } catch (ImageGridException | InvalidImageException e) {
+                    release(frame);
+                    listener.onFailure(e, frame.start);
+                } catch (Exception e) {
+                    release(frame);
+                    LOGGER.log(Level.WARNING, "Recognition stage " + name + " failed", e);
+                }
+            }
+        }, "BrickMusic-Recognition-" + name);
+        thread.setDaemon(true);
+        stages.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Passes a frame to the next stage. If the queue of the next stage is full, the oldest frame is dropped.
+     *
+     * @param queue The input queue of the next stage
+     * @param frame The frame to pass
+     */
+    private void handOver(BlockingQueue<RecognitionFrame> queue, RecognitionFrame frame) {
+        while (!queue.offer(frame)) {
+            final RecognitionFrame dropped = queue.poll();
+            if (dropped != null) release(dropped);
+        }
+    }
+
+    /**
+     * Hands the buffers and the input image of a frame back once the frame leaves the pipeline
+     *
+     * @param frame The frame to release
+     */
+    private void release(RecognitionFrame frame) {
+        if (frame.released) return;
+        frame.released = true;
+        recognizer.release(frame);
+        frameRecycler.accept(frame.image);
+    }
+}
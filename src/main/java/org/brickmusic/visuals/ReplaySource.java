@@ -0,0 +1,53 @@
+package org.brickmusic.visuals;
+
+/**
+ * Base class of frame sources replaying recorded frames. Frames are either replayed in real time, i.e. with the
+ * frame rate of the recording, or as fast as possible.
+ */
+public abstract class ReplaySource implements FrameSource {
+
+    /**
+     * Defines if frames are delivered in real time or as fast as possible
+     */
+    private final boolean realTime;
+
+    /**
+     * Time in nanoseconds at which the next frame is due
+     */
+    private long nextFrameTime = 0;
+
+    /**
+     * @param realTime Set to true if frames shall be delivered with the frame rate of the recording, false if frames
+     *                 shall be delivered as fast as possible
+     */
+    protected ReplaySource(boolean realTime) {
+        this.realTime = realTime;
+    }
+
+    /**
+     * @return The frame rate of the recording in frames per second
+     */
+    protected abstract double getFrameRate();
+
+    /**
+     * Waits until the next frame is due, returns immediately if frames are delivered as fast as possible.
+     * If the caller falls behind, frames are not delivered faster to catch up.
+     *
+     * @return false if the waiting thread was interrupted, true otherwise
+     */
+    protected boolean awaitNextFrame() {
+        if (!realTime || getFrameRate() <= 0) return true;
+
+        final long now = System.nanoTime();
+        final long delay = nextFrameTime - now;
+        nextFrameTime = Math.max(now, nextFrameTime) + (long) (1e9 / getFrameRate());
+        if (delay <= 0) return true;
+        try {
+            Thread.sleep(delay / 1_000_000, (int) (delay % 1_000_000));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.brickmusic.visuals;
 
+import org.brickmusic.bricklogic.RectGeometry;
 import org.jetbrains.annotations.NotNull;
 import org.opencv.core.Point;
 import org.opencv.core.RotatedRect;
@@ -37,7 +38,7 @@ public class SimpleVisual implements Comparable<Object> {
     public SimpleVisual(RotatedRect rectangle) {
         this.points = new Point[4];
         this.rectangle = rectangle;
-        this.rectangle.points(this.points);
+        updatePoints();
         normalizeAngle();
     }
 
@@ -73,7 +74,7 @@ public class SimpleVisual implements Comparable<Object> {
      */
     public void setRectangle(@NotNull RotatedRect rectangle) {
         this.rectangle = rectangle;
-        rectangle.points(points);
+        updatePoints();
         normalizeAngle();
     }
 
@@ -161,6 +162,16 @@ public class SimpleVisual implements Comparable<Object> {
         }
     }
     
+    /**
+     * Calculates the corner points of the attached rectangle
+     */
+    private void updatePoints() {
+        final double[] corners = new double[8];
+        RectGeometry.corners(rectangle.center.x, rectangle.center.y, rectangle.size.width, rectangle.size.height,
+                rectangle.angle, corners);
+        for (int i = 0; i < points.length; i++) points[i] = new Point(corners[2 * i], corners[2 * i + 1]);
+    }
+
     /**
      * Normalizes the angle of this visual that lies within a given error tolerance threshold
      */
@@ -0,0 +1,73 @@
+package org.brickmusic.visuals;
+
+import org.jetbrains.annotations.NotNull;
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+
+import static org.brickmusic.Main.SETTINGS;
+import static org.opencv.videoio.Videoio.CAP_PROP_FPS;
+import static org.opencv.videoio.Videoio.CAP_PROP_POS_FRAMES;
+
+/**
+ * Frame source replaying a video file in an endless loop
+ */
+public class VideoFileSource extends ReplaySource {
+
+    /**
+     * Path of the video file
+     */
+    private final String path;
+
+    /**
+     * Video capture reading the file
+     */
+    private volatile VideoCapture capture;
+
+    /**
+     * @param path     Path of the video file
+     * @param realTime Set to true if frames shall be delivered with the frame rate of the video, false if frames
+     *                 shall be delivered as fast as possible
+     */
+    public VideoFileSource(@NotNull String path, boolean realTime) {
+        super(realTime);
+        this.path = path;
+    }
+
+    @Override
+    public boolean open() {
+        if (capture != null) capture.release();
+        capture = new VideoCapture(path);
+        return capture.isOpened();
+    }
+
+    @Override
+    public boolean isOpened() {
+        return capture != null && capture.isOpened();
+    }
+
+    @Override
+    public boolean read(@NotNull Mat frame) {
+        if (!isOpened() || !awaitNextFrame()) return false;
+        if (capture.read(frame)) return true;
+
+        // Restart at the end of the video
+        capture.set(CAP_PROP_POS_FRAMES, 0);
+        return capture.read(frame);
+    }
+
+    @Override
+    public void release() {
+        if (capture != null) capture.release();
+    }
+
+    @Override
+    protected double getFrameRate() {
+        final double frameRate = isOpened() ? capture.get(CAP_PROP_FPS) : 0;
+        return (frameRate > 0) ? frameRate : SETTINGS.getDouble("REPLAY_FRAME_RATE");
+    }
+
+    @Override
+    public String toString() {
+        return "Video file " + path;
+    }
+}
@@ -5,15 +5,14 @@ import org.brickmusic.playmanagement.BlockingMode;
 import org.brickmusic.playmanagement.Player;
 import org.jetbrains.annotations.NotNull;
 import org.opencv.core.Mat;
-import org.opencv.videoio.VideoCapture;
 
 import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static org.brickmusic.Main.SETTINGS;
-import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_HEIGHT;
-import static org.opencv.videoio.Videoio.CAP_PROP_FRAME_WIDTH;
 
 /**
  * A VisualManager is responsible for managing the input, processing and updating of image frames.
@@ -32,22 +31,57 @@ public class VisualManager extends TimerTask {
     private final ImageRecognizer recognizer;
 
     /**
-     * Delay between frames for image recognition and capturing
+     * Source of the analysed frames, usually a webcam
      */
-    private final int frameDelay;
+    private final FrameSource source;
 
     /**
-     * Video capture for webcam collection
+     * Pipeline running the recognition stages concurrently, null if pipelined recognition is disabled
      */
-    private VideoCapture capture;
+    private final RecognitionPipeline pipeline;
 
-    private static final int CAMERA_WIDTH = 1920;
-    private static final int CAMERA_HEIGHT = 1080;
+    /**
+     * Handoff between the capture thread and image recognition, only the most recent frame is kept
+     */
+    private final LatestFrameBuffer frameBuffer;
+
+    /**
+     * Thread continuously grabbing frames into the frame buffer
+     *
+     * @see VisualManager#startCapture()
+     */
+    private Thread captureThread;
+
+    /**
+     * Set by image recognition upon recurring frame errors, the capture thread reopens the camera if set
+     */
+    private final AtomicBoolean resetRequested = new AtomicBoolean(false);
+
+    /**
+     * Set upon termination, runs after termination are rejected
+     */
+    private volatile boolean terminated = false;
 
-    private final int cameraIndex;
-    private final int captureMode;
     private static final int MAXIMAL_FRAME_ERROR_THRESHOLD = 5;
-    private int frameErrorCounter = 0;
+    private final AtomicInteger frameErrorCounter = new AtomicInteger(0);
+
+    /**
+     * Exponential moving average of the recognition latency in nanoseconds, i.e. the time from taking a frame until
+     * its result is available
+     *
+     * @see VisualManager#getRecognitionLatency()
+     */
+    private volatile long recognitionLatency = 0;
+
+    /**
+     * Weight of the latest measurement in the recognition latency average
+     */
+    private static final double LATENCY_SMOOTHING = 0.25;
+
+    /**
+     * Waiting time in milliseconds after a failed grab before the capture thread retries
+     */
+    private static final int GRAB_RETRY_DELAY = 20;
 
     /**
      * @param cameraIndex Index of the used camera
@@ -55,81 +89,232 @@ public class VisualManager extends TimerTask {
      * @param player      Manager to be updated after analysis
      */
     public VisualManager(int cameraIndex, int captureMode, @NotNull Player player) {
+        this(new CameraSource(cameraIndex, captureMode), player);
+    }
+
+    /**
+     * @param source The source of the frames to analyse
+     * @param player Manager to be updated after analysis
+     */
+    public VisualManager(@NotNull FrameSource source, @NotNull Player player) {
         this.player = player;
         this.recognizer = new ImageRecognizer();
-        this.frameDelay = SETTINGS.getInt("FRAME_DELAY");
-        this.cameraIndex = cameraIndex;
-        this.captureMode = captureMode;
+        this.frameBuffer = new LatestFrameBuffer();
+        this.source = source;
 
-        LOGGER.info("VideoCapture Initialization at camera index " + cameraIndex);
-        openCamera();
-        LOGGER.info("VideoCapture Initialization complete");
+        LOGGER.info("Frame source Initialization: " + source);
+        source.open();
+        LOGGER.info("Frame source Initialization complete");
 
-        if (!capture.isOpened())
-            throw new CameraAccessException("Camera (specified as " + cameraIndex + ") cannot be accessed by VisualManager");
+        if (!source.isOpened())
+            throw new CameraAccessException("Frame source (" + source + ") cannot be accessed by VisualManager");
+
+        this.pipeline = SETTINGS.getBoolean("PIPELINED_RECOGNITION") ?
+                new RecognitionPipeline(recognizer, new RecognitionPipeline.Listener() {
+                    @Override
+                    public void onRecognized(@NotNull BrickMap map, long start) {
+                        handleResult(map, start);
+                    }
+
+                    @Override
+                    public void onFailure(@NotNull Exception exception, long start) {
+                        handleFailure(exception, start);
+                    }
+                }, frameBuffer::recycle) : null;
     }
 
     /**
-     * Runs this VisualManager with provided configuration
+     * Runs this VisualManager with provided configuration, i.e. analyses the most recent frame grabbed by the capture
+     * thread. If no new frame is available since the last run, nothing is done. This includes the time in which the
+     * capture thread reopens the frame source, so that a source reset does not stop the scheduled recognition.
+     * In pipelined mode the frame is only submitted to the recognition pipeline.
+     *
+     * @throws CameraAccessException If the visual manager has been terminated
+     * @see VisualManager#analyzeLatestFrame()
      */
     @Override
     public void run() {
-        if (!capture.isOpened()) {
-            throw new CameraAccessException("Camera capture (specified as " + cameraIndex + ") closed before run() execution");
-        } else if (capture.isOpened() && !player.isBlocked()) {
-            Mat frame = new Mat();
+        analyzeLatestFrame();
+    }
+
+    /**
+     * Analyses the most recent frame grabbed by the capture thread, or submits it to the recognition pipeline in
+     * pipelined mode. Nothing is analysed while the player is blocked.
+     *
+     * @return False if no new frame was available since the last analysis, True otherwise
+     * @throws CameraAccessException If the visual manager has been terminated
+     * @see VisualManager#startCapture()
+     * @see RecognitionPipeline
+     */
+    public boolean analyzeLatestFrame() {
+        if (terminated) {
+            throw new CameraAccessException("Frame source (" + source + ") closed before run() execution");
+        } else if (!player.isBlocked()) {
+            final Mat frame = frameBuffer.take();
+            if (frame == null) return false;
+            final long start = System.nanoTime();
+
+            // Check for recurring image failure and let the capture thread reopen the camera if required
+            if (frameErrorCounter.get() > MAXIMAL_FRAME_ERROR_THRESHOLD) {
+                LOGGER.warning("Recurring image grabbing failure: Resetting video capture after " + MAXIMAL_FRAME_ERROR_THRESHOLD + " attempts failed");
+                resetRequested.set(true);
+            }
+
+            if (pipeline != null) {
+                pipeline.submit(frame);
+                return true;
+            }
+
             try {
-                // Check for recurring image failure and reopen camera if required
-                if (frameErrorCounter > MAXIMAL_FRAME_ERROR_THRESHOLD) {
-                    LOGGER.warning("Recurring image grabbing failure: Resetting video capture after " + MAXIMAL_FRAME_ERROR_THRESHOLD + " attempts failed");
-                    capture.release();
-                    openCamera();
-                }
-                capture.read(frame);
-                BrickMap generatedBrickMap = recognizer.analyzeFrame(frame);
-                player.updateMap(generatedBrickMap);
-                Thread.sleep(frameDelay);
-                frameErrorCounter = 0;
-            } catch (ImageGridException imageError) {
-                if (SETTINGS.getBoolean("DEBUG_LEVEL_FINE")) LOGGER.info(imageError.getMessage());
-                player.block(BlockingMode.GPDF);
-                frameErrorCounter++;
-            } catch (InvalidImageException imageException) {
-                LOGGER.warning(imageException.getMessage());
-                player.block(BlockingMode.GPDF);
-                frameErrorCounter++;
+                handleResult(recognizer.analyzeFrame(frame), start);
             } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "An exception occurred while processing images", e);
+                handleFailure(e, start);
+            } finally {
+                frameBuffer.recycle(frame);
             }
         }
+        return true;
     }
 
     /**
-     * Validates if the attached VideoCapture can grab a correct image
+     * Passes a successfully generated brick map to the player
      *
-     * @return true if a grabbed sample frame is formatted correctly, false otherwise
+     * @param generatedBrickMap The generated map
+     * @param start             Point in time (System.nanoTime()) at which the frame was taken for analysis
      */
-    public boolean validateCameraInput() {
-        Mat frame = new Mat();
-        capture.read(frame);
-        return !frame.empty() && frame.channels() == 3 && frame.height() > 0 && frame.height() > 0;
+    private void handleResult(@NotNull BrickMap generatedBrickMap, long start) {
+        updateRecognitionLatency(start);
+        player.updateMap(generatedBrickMap);
+        frameErrorCounter.set(0);
     }
 
     /**
-     * Sets a new Video capture and opens the camera with given cameraIndex and captureMode
+     * Handles a failed image analysis
+     *
+     * @param exception The exception thrown during image analysis
+     * @param start     Point in time (System.nanoTime()) at which the frame was taken for analysis
      */
-    private void openCamera() {
-        capture = new VideoCapture();
-        capture.open(cameraIndex, captureMode);
-        capture.set(CAP_PROP_FRAME_WIDTH, CAMERA_WIDTH);
-        capture.set(CAP_PROP_FRAME_HEIGHT, CAMERA_HEIGHT);
+    private void handleFailure(@NotNull Exception exception, long start) {
+        updateRecognitionLatency(start);
+        if (exception instanceof ImageGridException imageError) {
+            if (SETTINGS.getBoolean("DEBUG_LEVEL_FINE")) LOGGER.info(imageError.getMessage());
+            player.block(BlockingMode.GPDF);
+            frameErrorCounter.incrementAndGet();
+        } else if (exception instanceof InvalidImageException imageException) {
+            LOGGER.warning(imageException.getMessage());
+            player.block(BlockingMode.GPDF);
+            frameErrorCounter.incrementAndGet();
+        } else {
+            LOGGER.log(Level.WARNING, "An exception occurred while processing images", exception);
+        }
+    }
+
+    /**
+     * Adds the latency of the most recently finished analysis to the recognition latency average
+     *
+     * @param start Point in time (System.nanoTime()) at which the analysed frame was taken
+     */
+    private synchronized void updateRecognitionLatency(long start) {
+        final long latency = System.nanoTime() - start;
+        final long average = recognitionLatency;
+        recognitionLatency = (average == 0) ? latency :
+                (long) (LATENCY_SMOOTHING * latency + (1 - LATENCY_SMOOTHING) * average);
+    }
+
+    /**
+     * @return The average time in nanoseconds from taking a frame until its brick map is passed to the player,
+     * 0 if no frame has been analysed yet
+     */
+    public long getRecognitionLatency() {
+        return recognitionLatency;
+    }
+
+    /**
+     * Starts the capture thread, which continuously grabs frames from the frame source into the frame buffer.
+     * Grabbing continuously keeps the camera driver from queueing outdated frames, so that recognition always
+     * works on the freshest available frame.
+     */
+    public void startCapture() {
+        if (captureThread != null) {
+            LOGGER.warning("Capture start omitted: Capture thread is already running");
+            return;
+        }
+        captureThread = new Thread(this::capture, "BrickMusic-Capture");
+        captureThread.setDaemon(true);
+        captureThread.start();
+    }
+
+    /**
+     * Capture loop executed by the capture thread. The frame source is only reopened and finally released by this
+     * thread, so that no read is running while the source is released. The frame buffer is cleared on exit for the
+     * same reason, as a running read still offers or recycles its frame.
+     */
+    private void capture() {
+        int grabErrorCounter = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (resetRequested.getAndSet(false) || grabErrorCounter > MAXIMAL_FRAME_ERROR_THRESHOLD ||
+                        !source.isOpened()) {
+                    source.release();
+                    if (!source.open()) LOGGER.warning("Frame source (" + source + ") could not be reopened");
+                    grabErrorCounter = 0;
+                }
+
+                final Mat frame = frameBuffer.obtain();
+                if (source.isOpened() && source.read(frame) && !frame.empty()) {
+                    frameBuffer.offer(frame);
+                    grabErrorCounter = 0;
+                } else {
+                    frameBuffer.recycle(frame);
+                    grabErrorCounter++;
+                    try {
+                        Thread.sleep(GRAB_RETRY_DELAY);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        } finally {
+            source.release();
+            frameBuffer.clear();
+        }
+    }
+
+    /**
+     * Validates if the attached frame source can provide a correct image.
+     * This method must be called before the capture thread is started.
+     *
+     * @return true if a grabbed sample frame is formatted correctly, false otherwise
+     */
+    public boolean validateCameraInput() {
+        Mat frame = new Mat();
+        source.read(frame);
+        return !frame.empty() && frame.channels() == 3 && frame.height() > 0 && frame.height() > 0;
     }
 
     /**
      * Terminates the visual manager
      */
     public void terminate() {
-        capture.release();
+        terminated = true;
+        if (pipeline != null) pipeline.terminate();
+        if (captureThread != null) {
+            // The capture thread releases the frame source and the frame buffer on exit, as a read may still be running
+            captureThread.interrupt();
+            try {
+                captureThread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (captureThread.isAlive()) {
+                LOGGER.warning("Capture thread still reading, source and frame buffer are released afterward");
+            }
+            captureThread = null;
+        } else {
+            source.release();
+            frameBuffer.clear();
+        }
+        recognizer.terminate();
         LOGGER.info("Terminated WebcamManager");
     }
 }
@@ -0,0 +1,140 @@
+package org.brickmusic.bricklogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrickHistoryTest {
+
+    private static final int WIDTH = BrickType.GROUND_PLATE.getWidth();
+    private static final int HEIGHT = BrickType.GROUND_PLATE.getHeight();
+
+    /**
+     * Positions bricks are randomly placed at, few positions lead to differing votes on the same cells
+     */
+    private static final int[][] POSITIONS = {{0, 0}, {2, 4}, {3, 4}, {10, 2}, {12, 8}, {20, 10}, {28, 6}, {31, 12}};
+
+    private static final BrickType[] TYPES = {BrickType.PIN, BrickType.SOLID_2x2, BrickType.SOLID_4x2};
+
+    private static final InstrumentColor[] COLORS = {InstrumentColor.WHITE, InstrumentColor.RED,
+            InstrumentColor.BLUE};
+
+    private static final InstrumentColor[] EXTENSIONS = {InstrumentColor.GREEN, InstrumentColor.RED,
+            InstrumentColor.BLACK};
+
+    /**
+     * Calculates the average brick map the way it was calculated before the history kept votes, by counting the
+     * bricks of all maps for every cell
+     */
+    private static BrickMap getAverageBrickMap(List<BrickMap> maps) {
+        BrickMap resultMap = new BrickMap();
+
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                int foundBrickCounter = 0;
+                Brick foundBrick = null;
+                HashMap<InstrumentColor, Integer> foundExtensions = new HashMap<>();
+                for (BrickMap map : maps) {
+                    if (map.getBrick(x, y) != null) {
+                        foundBrickCounter++;
+                        foundBrick = new Brick(map.getBrick(x, y));
+                        for (InstrumentColor extension : foundBrick.getExtensions()) {
+                            foundExtensions.put(extension, foundExtensions.getOrDefault(extension, 0) + 1);
+                        }
+                    }
+                }
+
+                if (foundBrick != null && foundBrickCounter >= maps.size() / 2) {
+                    for (Map.Entry<InstrumentColor, Integer> entry : foundExtensions.entrySet()) {
+                        if (entry.getValue() >= maps.size() / 3) foundBrick.addExtension(entry.getKey());
+                    }
+                    resultMap.addBrick(x, y, foundBrick);
+                }
+            }
+        }
+        resultMap.clean();
+        return resultMap;
+    }
+
+    /**
+     * Creates a frozen map of random bricks at the test positions
+     */
+    private static BrickMap createRandomMap(Random random) {
+        BrickMap map = new BrickMap();
+        for (int[] position : POSITIONS) {
+            if (random.nextDouble() < 0.4) continue;
+            Brick brick = new Brick(TYPES[random.nextInt(TYPES.length)], 0, COLORS[random.nextInt(COLORS.length)]);
+            for (InstrumentColor extension : EXTENSIONS) {
+                if (brick.getType() != BrickType.PIN && random.nextDouble() < 0.3) brick.addExtension(extension);
+            }
+            map.addBrick(position[0], position[1], brick);
+        }
+        return map.freeze();
+    }
+
+    /**
+     * Describes all bricks of a map including their extensions, independent of the extension order
+     */
+    private static List<String> describe(BrickMap map) {
+        List<String> bricks = new ArrayList<>();
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                Brick brick = map.getBrick(x, y);
+                if (brick == null) continue;
+                List<InstrumentColor> extensions = new ArrayList<>(brick.getExtensions());
+                extensions.sort(Enum::compareTo);
+                bricks.add(x + "/" + y + " " + brick + " " + extensions);
+            }
+        }
+        return bricks;
+    }
+
+    /**
+     * Checks if the sliding window average equals the average over the maps of the window for various window sizes
+     */
+    @Test
+    void checkAverageEquivalence() {
+        Random random = new Random(42);
+        for (int capacity = 1; capacity <= 9; capacity++) {
+            BrickHistory history = new BrickHistory(capacity);
+            List<BrickMap> window = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                BrickMap map = createRandomMap(random);
+                history.add(map);
+                window.add(map);
+                if (window.size() > capacity) window.remove(0);
+
+                assertEquals(window.size() >= capacity, history.isFull());
+                assertEquals(describe(getAverageBrickMap(window)), describe(history.getAverage()),
+                        "Capacity " + capacity + ", map " + i);
+            }
+        }
+    }
+
+    /**
+     * Checks if bricks leave the average once their votes left the window
+     */
+    @Test
+    void checkEviction() {
+        BrickHistory history = new BrickHistory(3);
+        BrickMap occupied = new BrickMap();
+        occupied.addBrick(4, 4, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED));
+        occupied.freeze();
+        BrickMap empty = new BrickMap().freeze();
+
+        history.add(occupied);
+        history.add(occupied);
+        history.add(empty);
+        assertNotNull(history.getAverage().getBrick(4, 4));
+
+        history.add(empty);
+        history.add(empty);
+        assertTrue(history.getAverage().isEmpty());
+    }
+}
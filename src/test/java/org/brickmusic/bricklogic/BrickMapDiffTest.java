@@ -0,0 +1,101 @@
+package org.brickmusic.bricklogic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrickMapDiffTest {
+
+    /**
+     * Creates a frozen map containing a single brick
+     */
+    private static BrickMap createMap(Brick brick) {
+        BrickMap map = new BrickMap();
+        map.addBrick(6, 3, brick);
+        return map.freeze();
+    }
+
+    /**
+     * Checks if equal maps and the same snapshot lead to empty differences
+     */
+    @Test
+    void checkEmptyDifference() {
+        BrickMap map = createMap(new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED));
+        assertTrue(BrickMapDiff.between(map, map).isEmpty());
+
+        BrickMapDiff diff = BrickMapDiff.between(map, createMap(new Brick(BrickType.SOLID_2x2, 0,
+                InstrumentColor.RED)));
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.getChangedColumns());
+        assertFalse(diff.isMetaDataChanged());
+        assertEquals(map.getMetaData(), diff.getPreviousMetaData());
+
+        assertTrue(BrickMapDiff.between(new BrickMap().freeze(), new BrickMap().freeze()).isEmpty());
+    }
+
+    /**
+     * Checks if a single added, removed or changed brick is reported in its column and row only
+     */
+    @Test
+    void checkOneBrickDifference() {
+        BrickMap empty = new BrickMap().freeze();
+        BrickMap map = createMap(new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED));
+
+        BrickMapDiff added = BrickMapDiff.between(empty, map);
+        assertFalse(added.isEmpty());
+        assertEquals(1 << 6, added.getChangedColumns());
+        assertEquals(1 << 3, added.getAdded(6));
+        assertEquals(0, added.getRemoved(6));
+        assertEquals(0, added.getChanged(6));
+
+        BrickMapDiff removed = BrickMapDiff.between(map, empty);
+        assertEquals(1 << 6, removed.getChangedColumns());
+        assertEquals(0, removed.getAdded(6));
+        assertEquals(1 << 3, removed.getRemoved(6));
+
+        BrickMapDiff recolored = BrickMapDiff.between(map, createMap(new Brick(BrickType.SOLID_2x2, 0,
+                InstrumentColor.BLUE)));
+        assertEquals(1 << 6, recolored.getChangedColumns());
+        assertEquals(1 << 3, recolored.getChanged(6));
+        assertEquals(0, recolored.getAdded(6) | recolored.getRemoved(6));
+
+        // Extensions are not part of brick equality, but change the played notes
+        Brick extended = new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED);
+        extended.addExtension(InstrumentColor.GREEN);
+        BrickMapDiff extension = BrickMapDiff.between(map, createMap(extended));
+        assertEquals(1 << 3, extension.getChanged(6));
+        assertFalse(extension.isMetaDataChanged());
+    }
+
+    /**
+     * Checks if bricks with the same extensions in a different order are not reported as changed
+     */
+    @Test
+    void checkReorderedExtensions() {
+        Brick first = new Brick(BrickType.SOLID_4x2, 0, InstrumentColor.RED);
+        first.addExtension(InstrumentColor.GREEN);
+        first.addExtension(InstrumentColor.BLACK);
+        Brick second = new Brick(BrickType.SOLID_4x2, 0, InstrumentColor.RED);
+        second.addExtension(InstrumentColor.BLACK);
+        second.addExtension(InstrumentColor.GREEN);
+        assertTrue(BrickMapDiff.between(createMap(first), createMap(second)).isEmpty());
+
+        Brick third = new Brick(BrickType.SOLID_4x2, 0, InstrumentColor.RED);
+        third.addExtension(InstrumentColor.BLACK);
+        third.addExtension(InstrumentColor.BLUE);
+        assertEquals(1 << 3, BrickMapDiff.between(createMap(first), createMap(third)).getChanged(6));
+    }
+
+    /**
+     * Checks if a first snapshot adds all bricks and differs in metadata
+     */
+    @Test
+    void checkFirstSnapshot() {
+        BrickMap map = createMap(new Brick(BrickType.PIN, 0, InstrumentColor.GREEN));
+        BrickMapDiff diff = BrickMapDiff.between(null, map);
+        assertEquals(1 << 3, diff.getAdded(6));
+        assertNull(diff.getPreviousMetaData());
+        assertTrue(diff.isMetaDataChanged());
+        assertFalse(diff.isEmpty());
+    }
+}
@@ -0,0 +1,168 @@
+package org.brickmusic.bricklogic;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrickMapTest {
+
+    @BeforeAll
+    public static void setUp() {
+        Loader.load(opencv_java.class);
+    }
+
+    /**
+     * Counts the bricks of a map including the metadata region
+     */
+    private static int countBricks(BrickMap map) {
+        int bricks = 0;
+        for (int x = 0; x < BrickType.GROUND_PLATE.getWidth(); x++) {
+            bricks += Integer.bitCount(map.getColumnMask(x));
+        }
+        return bricks;
+    }
+
+    /**
+     * Checks if pins within a brick become extensions of the brick, while other pins remain individual pins
+     */
+    @Test
+    void checkPinMerging() {
+        BrickMap map = new BrickMap();
+        map.addBrick(4, 4, new Brick(BrickType.SOLID_4x2, 0, InstrumentColor.WHITE));
+        map.addBrick(5, 5, new Brick(BrickType.PIN, 0, InstrumentColor.GREEN));
+        map.addBrick(7, 4, new Brick(BrickType.PIN, 0, InstrumentColor.BLACK));
+        map.addBrick(10, 10, new Brick(BrickType.PIN, 0, InstrumentColor.RED));
+        map.clean();
+
+        assertEquals(2, countBricks(map));
+        assertNull(map.getBrick(5, 5));
+        assertNull(map.getBrick(7, 4));
+        assertEquals(2, map.getBrick(4, 4).getExtensions().size());
+        assertTrue(map.getBrick(4, 4).getExtensions().containsAll(List.of(InstrumentColor.GREEN,
+                InstrumentColor.BLACK)));
+        assertEquals(InstrumentColor.RED, map.getBrick(10, 10).getColor());
+        assertTrue(map.getBrick(10, 10).getExtensions().isEmpty());
+    }
+
+    /**
+     * Checks if pins are merged according to the rotated area of a brick instead of its unrotated area
+     */
+    @Test
+    void checkRotatedPinMerging() {
+        BrickMap map = new BrickMap();
+        // Rotated by 90 degree, the brick covers the columns 5 to 6 and the rows 3 to 6
+        map.addBrick(4, 4, new Brick(BrickType.SOLID_4x2, 90, InstrumentColor.BLUE));
+        map.addBrick(4, 5, new Brick(BrickType.PIN, 0, InstrumentColor.GREEN));
+        map.addBrick(5, 6, new Brick(BrickType.PIN, 0, InstrumentColor.RED));
+        map.clean();
+
+        assertEquals(2, countBricks(map));
+        assertEquals(List.of(InstrumentColor.RED), map.getBrick(4, 4).getExtensions());
+        assertNull(map.getBrick(5, 6));
+        assertEquals(InstrumentColor.GREEN, map.getBrick(4, 5).getColor());
+    }
+
+    /**
+     * Checks if the smaller one of two overlapping unrotated bricks is removed
+     */
+    @Test
+    void checkOverlappingBricks() {
+        BrickMap map = new BrickMap();
+        map.addBrick(4, 4, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED));
+        map.addBrick(5, 4, new Brick(BrickType.SOLID_4x2, 0, InstrumentColor.BLUE));
+        map.clean();
+
+        assertEquals(1, countBricks(map));
+        assertNull(map.getBrick(4, 4));
+        assertEquals(BrickType.SOLID_4x2, map.getBrick(5, 4).getType());
+    }
+
+    /**
+     * Checks if a rotated brick is removed in favour of an overlapping unrotated brick, regardless of their sizes
+     */
+    @Test
+    void checkOverlappingRotatedBricks() {
+        BrickMap map = new BrickMap();
+        map.addBrick(4, 4, new Brick(BrickType.SOLID_6x2, 45, InstrumentColor.RED));
+        map.addBrick(6, 4, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.BLUE));
+        map.clean();
+
+        assertEquals(1, countBricks(map));
+        assertNull(map.getBrick(4, 4));
+        assertEquals(BrickType.SOLID_2x2, map.getBrick(6, 4).getType());
+    }
+
+    /**
+     * Checks if bricks overlap if a corner of a rotated brick reaches into another brick, even if the bricks share no
+     * cell center
+     */
+    @Test
+    void checkRotatedCornerOverlap() {
+        BrickMap map = new BrickMap();
+        map.addBrick(10, 6, new Brick(BrickType.SOLID_4x2, 20, InstrumentColor.RED));
+        map.addBrick(14, 6, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.BLUE));
+        map.clean();
+
+        assertEquals(1, countBricks(map));
+        assertNull(map.getBrick(10, 6));
+        assertEquals(BrickType.SOLID_2x2, map.getBrick(14, 6).getType());
+    }
+
+    /**
+     * Checks if crossing bricks overlap, although no corner of either brick lies inside the other brick
+     */
+    @Test
+    void checkCrossingBricks() {
+        BrickMap map = new BrickMap();
+        map.addBrick(4, 6, new Brick(BrickType.SOLID_6x2, 0, InstrumentColor.RED));
+        // Rotated by 90 degree, the brick covers the columns 7 to 8 and the rows 4 to 9
+        map.addBrick(5, 6, new Brick(BrickType.SOLID_6x2, 90, InstrumentColor.BLUE));
+        map.clean();
+
+        assertEquals(1, countBricks(map));
+        assertNull(map.getBrick(5, 6));
+        assertEquals(InstrumentColor.RED, map.getBrick(4, 6).getColor());
+    }
+
+    /**
+     * Checks if a brick contained in a bigger brick overlaps it, regardless of which of both bricks is checked first
+     */
+    @Test
+    void checkContainedBricks() {
+        BrickMap map = new BrickMap();
+        map.addBrick(4, 4, new Brick(BrickType.SOLID_8x2, 0, InstrumentColor.RED));
+        map.addBrick(6, 4, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.BLUE));
+        map.addBrick(20, 4, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.BLUE));
+        map.addBrick(18, 4, new Brick(BrickType.SOLID_8x2, 0, InstrumentColor.RED));
+        map.clean();
+
+        assertEquals(2, countBricks(map));
+        assertEquals(BrickType.SOLID_8x2, map.getBrick(4, 4).getType());
+        assertEquals(BrickType.SOLID_8x2, map.getBrick(18, 4).getType());
+    }
+
+    /**
+     * Checks if bricks only touching each other or overlapping in their unrotated area only remain unchanged
+     */
+    @Test
+    void checkTouchingBricks() {
+        BrickMap map = new BrickMap();
+        map.addBrick(0, 0, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED));
+        map.addBrick(2, 0, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.BLUE));
+        map.addBrick(0, 2, new Brick(BrickType.SOLID_4x2, 0, InstrumentColor.WHITE));
+
+        // Rotated by 90 degree, the brick covers the columns 11 to 12 only
+        map.addBrick(10, 4, new Brick(BrickType.SOLID_4x2, 90, InstrumentColor.BLUE));
+        map.addBrick(13, 4, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED));
+        map.clean();
+
+        assertEquals(5, countBricks(map));
+        map.freeze();
+        assertThrows(IllegalStateException.class, map::clean);
+    }
+}
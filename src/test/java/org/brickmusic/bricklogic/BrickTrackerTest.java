@@ -0,0 +1,136 @@
+package org.brickmusic.bricklogic;
+
+import org.brickmusic.visuals.ColorSampler;
+import org.brickmusic.visuals.SimpleVisual;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.RotatedRect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BrickTrackerTest {
+
+    /**
+     * Size of the cropped ground plate image, a pin is 40 pixels wide
+     */
+    private static final Size PLATE = new Size(1280, 640);
+
+    /**
+     * Edge length of a 2x2 brick in pixels
+     */
+    private static final double BRICK_SIZE = 80;
+
+    private static ColorSampler colors;
+
+    @BeforeAll
+    public static void setUp() {
+        Loader.load(opencv_java.class);
+        colors = new ColorSampler();
+        colors.update(new Mat(PLATE, CvType.CV_8UC3, new Scalar(0, 0, 200)));
+    }
+
+    /**
+     * Creates a synthetic visual object of a 2x2 brick
+     */
+    private static SimpleVisual createBrick(double x, double y) {
+        return new SimpleVisual(new RotatedRect(new Point(x, y), new Size(BRICK_SIZE, BRICK_SIZE), 0));
+    }
+
+    /**
+     * Tracks a frame of the whole plate and counts the bricks placed on the map
+     */
+    private static int track(BrickTracker tracker, List<SimpleVisual> visuals) {
+        return track(tracker, visuals, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Tracks a frame of a section of the plate and counts the bricks placed on the map
+     */
+    private static int track(BrickTracker tracker, List<SimpleVisual> visuals, double fromX, double toX) {
+        final BrickMapTranslator translator = new BrickMapTranslator(PLATE);
+        tracker.update(visuals, PLATE, fromX, toX, translator, colors, null);
+        tracker.place(translator);
+
+        final BrickMap map = translator.get();
+        int bricks = 0;
+        for (int x = 0; x < BrickType.GROUND_PLATE.getWidth(); x++) bricks += map.getBrick(x).size();
+        return bricks;
+    }
+
+    /**
+     * Checks if objects are matched to their tracks across slight movements, and distant objects are new tracks
+     */
+    @Test
+    void checkMatching() {
+        BrickTracker tracker = new BrickTracker(1, 5);
+        assertEquals(1, track(tracker, List.of(createBrick(200, 200))));
+        assertEquals(1, track(tracker, List.of(createBrick(205, 198))));
+        assertEquals(1, tracker.size());
+
+        assertEquals(2, track(tracker, List.of(createBrick(205, 198), createBrick(600, 400))));
+        assertEquals(2, tracker.size());
+    }
+
+    /**
+     * Checks if tracks are only placed on the map after the configured number of frames
+     */
+    @Test
+    void checkConfirmation() {
+        BrickTracker tracker = new BrickTracker(3, 5);
+        List<SimpleVisual> visuals = List.of(createBrick(200, 200));
+        assertEquals(0, track(tracker, visuals));
+        assertEquals(0, track(tracker, visuals));
+        assertEquals(1, track(tracker, visuals));
+        assertEquals(1, tracker.size());
+    }
+
+    /**
+     * Checks if unconfirmed tracks are dropped upon the first miss and confirmed tracks after losing their confidence
+     */
+    @Test
+    void checkDropOut() {
+        BrickTracker tracker = new BrickTracker(2, 5);
+        List<SimpleVisual> visuals = List.of(createBrick(200, 200));
+        assertEquals(0, track(tracker, visuals));
+        assertEquals(0, track(tracker, List.of()));
+        assertEquals(0, tracker.size());
+
+        // Confidence is capped at twice the confirmation frames
+        for (int i = 0; i < 10; i++) track(tracker, visuals);
+        for (int i = 0; i < 3; i++) assertEquals(1, track(tracker, List.of()));
+        assertEquals(0, track(tracker, List.of()));
+        assertEquals(0, tracker.size());
+    }
+
+    /**
+     * Checks if tracks outside the analysed section are kept, while tracks inside the section are updated
+     */
+    @Test
+    void checkSectionUpdate() {
+        BrickTracker tracker = new BrickTracker(1, 5);
+        assertEquals(2, track(tracker, List.of(createBrick(200, 200), createBrick(1000, 200))));
+
+        // Only the right half is analysed, the left brick is kept although it is missing in the frame
+        assertEquals(2, track(tracker, List.of(createBrick(1000, 200)), 640, Double.POSITIVE_INFINITY));
+        assertEquals(2, track(tracker, List.of(), 640, Double.POSITIVE_INFINITY));
+        assertEquals(1, track(tracker, List.of(), 640, Double.POSITIVE_INFINITY));
+        assertEquals(1, tracker.size());
+
+        // Objects outside the analysed section are ignored
+        assertEquals(1, track(tracker, List.of(createBrick(200, 200), createBrick(1000, 200)),
+                Double.NEGATIVE_INFINITY, 640));
+        assertEquals(1, tracker.size());
+
+        tracker.reset();
+        assertEquals(0, tracker.size());
+    }
+}
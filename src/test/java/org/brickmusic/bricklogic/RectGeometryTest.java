@@ -0,0 +1,77 @@
+package org.brickmusic.bricklogic;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RectGeometryTest {
+
+    private static final double DELTA = 1e-9;
+
+    /**
+     * Checks if corners are calculated in the order of RotatedRect.points()
+     */
+    @Test
+    void checkCorners() {
+        double[] corners = new double[8];
+        RectGeometry.corners(2, 1, 4, 2, 0, corners);
+        assertArrayEquals(new double[]{0, 2, 0, 0, 4, 0, 4, 2}, corners, DELTA);
+
+        RectGeometry.corners(0, 0, 4, 2, 90, corners);
+        assertArrayEquals(new double[]{-1, -2, 1, -2, 1, 2, -1, 2}, corners, DELTA);
+    }
+
+    /**
+     * Checks if points are only contained if they lie strictly within rotated rectangles
+     */
+    @Test
+    void checkRectangleContainment() {
+        assertTrue(RectGeometry.contains(2, 1, 4, 2, 0, 3.5, 0.5));
+        assertFalse(RectGeometry.contains(2, 1, 4, 2, 0, 4, 1));
+        assertFalse(RectGeometry.contains(2, 1, 4, 2, 0, 4.5, 0.5));
+
+        assertTrue(RectGeometry.contains(0, 0, 4, 2, 90, 0.5, 1.5));
+        assertFalse(RectGeometry.contains(0, 0, 4, 2, 90, 1.5, 0.5));
+        assertTrue(RectGeometry.contains(0, 0, 4, 2, 45, 1, 1));
+        assertFalse(RectGeometry.contains(0, 0, 4, 2, 45, 1, -1));
+    }
+
+    /**
+     * Checks if point in polygon tests agree with the rectangle containment
+     */
+    @Test
+    void checkPolygonContainment() {
+        double[] corners = new double[8];
+        RectGeometry.corners(0, 0, 4, 2, 30, corners);
+        for (double x = -3; x <= 3; x += 0.25) {
+            for (double y = -3; y <= 3; y += 0.25) {
+                if (Math.abs(Math.abs(x * Math.sin(Math.toRadians(30)) - y * Math.cos(Math.toRadians(30))) - 1) < 0.01)
+                    continue;
+                assertEquals(RectGeometry.contains(0, 0, 4, 2, 30, x, y), RectGeometry.contains(corners, x, y),
+                        "Point " + x + ", " + y);
+            }
+        }
+    }
+
+    /**
+     * Checks if overlapping rectangles are separated from touching and distant rectangles
+     */
+    @Test
+    void checkOverlap() {
+        double[] first = new double[8], second = new double[8];
+        RectGeometry.corners(2, 1, 4, 2, 0, first);
+
+        RectGeometry.corners(5, 1, 4, 2, 0, second);
+        assertTrue(RectGeometry.overlap(first, second));
+        assertTrue(RectGeometry.overlap(second, first));
+
+        RectGeometry.corners(6, 1, 4, 2, 0, second);
+        assertFalse(RectGeometry.overlap(first, second));
+
+        RectGeometry.corners(2, 4.5, 4, 2, 45, second);
+        assertFalse(RectGeometry.overlap(first, second));
+
+        RectGeometry.corners(2, 3, 4, 2, 45, second);
+        assertTrue(RectGeometry.overlap(first, second));
+    }
+}
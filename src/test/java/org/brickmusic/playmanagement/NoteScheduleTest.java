@@ -0,0 +1,117 @@
+package org.brickmusic.playmanagement;
+
+import org.brickmusic.bricklogic.Brick;
+import org.brickmusic.bricklogic.BrickMap;
+import org.brickmusic.bricklogic.BrickMapDiff;
+import org.brickmusic.bricklogic.BrickType;
+import org.brickmusic.bricklogic.InstrumentColor;
+import org.brickmusic.bricklogic.MetaData;
+import org.brickmusic.sound.SoundData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NoteScheduleTest {
+
+    /**
+     * Creates a map containing bricks of all types, extensions and metadata pins
+     */
+    private static BrickMap createMap() {
+        BrickMap map = new BrickMap();
+        map.addBrick(0, 2, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.RED));
+        map.addBrick(0, 8, new Brick(BrickType.PIN, 0, InstrumentColor.BLUE));
+        map.addBrick(5, 0, new Brick(BrickType.SOLID_4x2, 35, InstrumentColor.GREEN));
+        map.addBrick(5, 11, new Brick(BrickType.SOLID_1x2, 0, InstrumentColor.BLACK));
+
+        Brick extended = new Brick(BrickType.SOLID_8x2, 0, InstrumentColor.WHITE);
+        extended.addExtension(InstrumentColor.GREEN);
+        extended.addExtension(InstrumentColor.BLACK);
+        map.addBrick(17, 6, extended);
+        map.addBrick(31, 12, new Brick(BrickType.SOLID_6x2, 90, InstrumentColor.BLUE));
+
+        // Speed and volume pins are metadata and are not played
+        map.addBrick(3, 13, new Brick(BrickType.PIN, 0, InstrumentColor.RED));
+        map.addBrick(20, 14, new Brick(BrickType.PIN, 0, InstrumentColor.RED));
+        return map;
+    }
+
+    /**
+     * Describes notes by all their properties in a comparable way
+     */
+    private static List<String> describe(List<SoundData> notes) {
+        List<String> descriptions = new ArrayList<>();
+        for (SoundData note : notes) {
+            descriptions.add(note.getChannel() + "/" + note.getDuration() + "/" + note.getKey() + "/" +
+                    note.getVolume() + "/" + note.getRotationProperty());
+        }
+        descriptions.sort(String::compareTo);
+        return descriptions;
+    }
+
+    /**
+     * Creates the notes of a beat the way the player created them before notes were compiled
+     */
+    private static List<String> expectedNotes(BrickMap map, int beat) {
+        final MetaData metaData = map.getMetaData();
+        List<SoundData> notes = new ArrayList<>();
+        for (Map.Entry<Integer, Brick> brickPair : map.getBrick(beat).entrySet()) {
+            int reversedKey = Math.abs(BrickType.GROUND_PLATE.getHeight() - brickPair.getKey());
+            notes.add(new SoundData(reversedKey, brickPair.getValue(), Player.bpmToSpeed(metaData.bpm()),
+                    metaData.volume(), metaData.pitch()));
+        }
+        return describe(notes);
+    }
+
+    /**
+     * Compares all beats of a schedule with the notes expected for a map
+     */
+    private static void assertSchedule(BrickMap map, NoteSchedule schedule) {
+        assertEquals(map.getMetaData(), schedule.getMetaData());
+        for (int beat = 0; beat < BrickType.GROUND_PLATE.getWidth(); beat++) {
+            assertEquals(expectedNotes(map, beat), describe(List.of(schedule.getNotes(beat))), "Beat " + beat);
+        }
+    }
+
+    /**
+     * Checks if the compiled notes match the bricks of each beat
+     */
+    @Test
+    void checkCompiledNotes() {
+        BrickMap map = createMap().freeze();
+        NoteSchedule schedule = new NoteSchedule(map);
+        assertSchedule(map, schedule);
+        assertEquals(2, schedule.getNotes(0).length);
+        assertEquals(0, schedule.getNotes(3).length);
+        assertEquals(0, schedule.getNotes(20).length);
+    }
+
+    /**
+     * Checks if schedules based on a previous schedule match the fully compiled schedule
+     */
+    @Test
+    void checkIncrementalCompilation() {
+        BrickMap previous = createMap().freeze();
+        NoteSchedule previousSchedule = new NoteSchedule(previous);
+
+        BrickMap changed = new BrickMap(previous);
+        changed.addBrick(9, 4, new Brick(BrickType.SOLID_2x2, 0, InstrumentColor.BLACK));
+        changed.getBrick(17, 6).addExtension(InstrumentColor.RED);
+        changed.freeze();
+        BrickMapDiff diff = BrickMapDiff.between(previous, changed);
+        NoteSchedule schedule = new NoteSchedule(previousSchedule, changed, diff);
+        assertSchedule(changed, schedule);
+        assertSame(previousSchedule.getNotes(0), schedule.getNotes(0));
+
+        // Changed metadata affects all notes
+        BrickMap faster = new BrickMap(changed);
+        faster.addBrick(10, 13, new Brick(BrickType.PIN, 0, InstrumentColor.RED));
+        faster.freeze();
+        diff = BrickMapDiff.between(changed, faster);
+        assertTrue(diff.isMetaDataChanged());
+        assertSchedule(faster, new NoteSchedule(schedule, faster, diff));
+    }
+}
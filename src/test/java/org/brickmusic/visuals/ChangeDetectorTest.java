@@ -0,0 +1,85 @@
+package org.brickmusic.visuals;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeDetectorTest {
+
+    @BeforeAll
+    public static void setUp() {
+        Loader.load(opencv_java.class);
+    }
+
+    /**
+     * Creates an image of an empty ground plate
+     */
+    private static Mat createPlate() {
+        return new Mat(320, 640, CvType.CV_8UC3, new Scalar(40, 200, 220));
+    }
+
+    /**
+     * Checks if unchanged frames are analysed until the scene is stable and skipped afterward
+     */
+    @Test
+    void checkUnchangedFrame() {
+        ChangeDetector detector = new ChangeDetector(24, 2);
+        Mat plate = createPlate();
+
+        assertTrue(detector.requiresAnalysis(plate));
+        assertEquals(ChangeDetector.ALL_BARS, detector.getPendingBars());
+        assertTrue(detector.requiresAnalysis(plate));
+        assertTrue(detector.requiresAnalysis(plate));
+        assertFalse(detector.requiresAnalysis(plate));
+        assertEquals(0, detector.getPendingBars());
+
+        // Noise below the threshold does not count as change
+        Mat noisy = createPlate();
+        Core.add(noisy, new Scalar(10, 10, 10), noisy);
+        assertFalse(detector.requiresAnalysis(noisy));
+    }
+
+    /**
+     * Checks if a brick placed within a single bar only marks this bar as changed
+     */
+    @Test
+    void checkOneBarChange() {
+        ChangeDetector detector = new ChangeDetector(24, 2);
+        Mat plate = createPlate();
+        for (int i = 0; i < 4; i++) detector.requiresAnalysis(plate);
+        assertEquals(0, detector.getPendingBars());
+
+        // Bar 3 covers the columns 240 to 319 of the 640 pixels wide plate
+        Imgproc.rectangle(plate, new Point(250, 100), new Point(300, 140), new Scalar(0, 0, 200), -1);
+        assertTrue(detector.requiresAnalysis(plate));
+        assertEquals(1 << 3, detector.getPendingBars());
+
+        // The bar stays pending until the changed scene is stable again
+        assertTrue(detector.requiresAnalysis(plate));
+        assertEquals(1 << 3, detector.getPendingBars());
+        assertTrue(detector.requiresAnalysis(plate));
+        assertFalse(detector.requiresAnalysis(plate));
+        assertEquals(0, detector.getPendingBars());
+    }
+
+    /**
+     * Checks if invalid settings are replaced by their defaults
+     */
+    @Test
+    void checkInvalidSettings() {
+        ChangeDetector detector = new ChangeDetector(-1, -1);
+        Mat plate = createPlate();
+        assertTrue(detector.requiresAnalysis(plate));
+        for (int i = 0; i < ChangeDetector.DEFAULT_STABLE_FRAMES; i++) assertTrue(detector.requiresAnalysis(plate));
+        assertFalse(detector.requiresAnalysis(plate));
+    }
+}
@@ -0,0 +1,86 @@
+package org.brickmusic.visuals;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.opencv.imgcodecs.Imgcodecs.imread;
+
+class ColorSamplerTest {
+
+    private static final double DELTA = 1e-6;
+
+    @BeforeAll
+    public static void setUp() {
+        Loader.load(opencv_java.class);
+    }
+
+    /**
+     * Compares a sampled color with the mean of the expected image section
+     */
+    private static void assertSection(ColorSampler sampler, Mat image, Point origin,
+                                      int top, int bottom, int left, int right) {
+        final Scalar expected = Core.mean(image.submat(top, bottom, left, right));
+        final Scalar actual = sampler.getAverageColor(origin);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected.val[i], actual.val[i], DELTA, "Channel " + i + " at " + origin);
+        }
+    }
+
+    /**
+     * Checks if average colors within the image match the mean of the 20x20 section around the point
+     */
+    @Test
+    void checkInnerAverages() {
+        Mat image = new Mat(480, 640, CvType.CV_8UC3);
+        Core.randu(image, 0, 256);
+        ColorSampler sampler = new ColorSampler();
+        sampler.update(image);
+
+        for (int x = 10; x <= 630; x += 31) {
+            for (int y = 10; y <= 470; y += 23) {
+                assertSection(sampler, image, new Point(x, y), y - 10, y + 10, x - 10, x + 10);
+                assertSection(sampler, image, new Point(x + 0.5, y + 0.25), y - 10, y + 10, x - 10, x + 10);
+            }
+        }
+    }
+
+    /**
+     * Checks if pixels outside the image are ignored at the image borders
+     */
+    @Test
+    void checkBorderAverages() {
+        Mat image = new Mat(480, 640, CvType.CV_8UC3);
+        Core.randu(image, 0, 256);
+        ColorSampler sampler = new ColorSampler();
+        sampler.update(image);
+
+        assertSection(sampler, image, new Point(3, 5), 1, 15, 1, 13);
+        assertSection(sampler, image, new Point(3.5, 5.5), 0, 15, 0, 13);
+        assertSection(sampler, image, new Point(630.2, 470.7), 460, 480, 620, 640);
+        assertEquals(new Scalar(0, 0, 0), sampler.getAverageColor(new Point(700, 500)));
+    }
+
+    /**
+     * Checks if the averages of a camera image match the mean of the sections
+     */
+    @Test
+    void checkCameraImage() {
+        Mat image = imread("src/test/resources/default (1).jpg");
+        ColorSampler sampler = new ColorSampler();
+        sampler.update(image);
+
+        for (int x = 100; x < image.width() - 100; x += 97) {
+            for (int y = 100; y < image.height() - 100; y += 89) {
+                assertSection(sampler, image, new Point(x, y), y - 10, y + 10, x - 10, x + 10);
+            }
+        }
+    }
+}
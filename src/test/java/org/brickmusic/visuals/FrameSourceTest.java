@@ -0,0 +1,69 @@
+package org.brickmusic.visuals;
+
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.opencv.imgcodecs.Imgcodecs.imread;
+
+class FrameSourceTest {
+
+    @BeforeAll
+    public static void setUp() {
+        Loader.load(opencv_java.class);
+    }
+
+    /**
+     * Checks if image directories are replayed in alphabetical order and restarted at the end
+     */
+    @Test
+    void checkImageDirectoryReplay() {
+        FrameSource source = new ImageDirectorySource(Path.of("src/test/resources"), false);
+        assertTrue(source.open());
+
+        Mat first = new Mat(), frame = new Mat();
+        assertTrue(source.read(first));
+        assertEquals(0, Core.norm(first, imread("src/test/resources/default (1).jpg")));
+        for (int i = 1; i < 15; i++) {
+            assertTrue(source.read(frame));
+            assertFalse(frame.empty());
+        }
+        assertTrue(source.read(frame));
+        assertEquals(0, Core.norm(first, frame));
+
+        source.release();
+        assertFalse(source.isOpened());
+        assertFalse(source.read(frame));
+    }
+
+    /**
+     * Checks if real time replay delivers frames with the configured frame rate
+     */
+    @Test
+    void checkRealTimeReplay() {
+        FrameSource source = new ImageDirectorySource(Path.of("src/test/resources"), true);
+        assertTrue(source.open());
+
+        Mat frame = new Mat();
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) assertTrue(source.read(frame));
+        assertTrue(System.nanoTime() - start >= 3 * 1e9 / 30 * 0.9);
+        source.release();
+    }
+
+    /**
+     * Checks if missing directories cannot be opened
+     */
+    @Test
+    void checkMissingDirectory() {
+        FrameSource source = new ImageDirectorySource(Path.of("src/test/missing"), false);
+        assertFalse(source.open());
+        assertFalse(source.isOpened());
+    }
+}
@@ -14,6 +14,7 @@ import org.opencv.core.Mat;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.opencv.imgcodecs.Imgcodecs.imread;
@@ -46,6 +47,18 @@ public class ImageRecognizerTest {
      * @return the resulting map
      */
     private BrickMap analyzeImage(String fileName) throws ImageGridException, InvalidImageException {
+        return analyzeImage(recognizer, fileName);
+    }
+
+    /**
+     * Learns images in iterations with a specific recognizer
+     *
+     * @param recognizer The recognizer to learn the images with
+     * @param fileName   The image name to learn without extension and number (e.g. "default" or "pinsonly")
+     * @return the resulting map
+     */
+    private static BrickMap analyzeImage(ImageRecognizer recognizer, String fileName)
+            throws ImageGridException, InvalidImageException {
         BrickMap map = null;
         for (int i = 0; i < 16; i++) {
             map = recognizer.analyzeFrame(imread("src/test/resources/" + fileName + " (1).jpg"));
@@ -177,4 +190,38 @@ public class ImageRecognizerTest {
             fail(e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Describes the positions, types and colors of the bricks of a map, ignoring their extensions and exact rotation
+     *
+     * @param map The map to describe
+     * @return Sorted descriptions of all bricks
+     */
+    private static List<String> describeBricks(BrickMap map) {
+        List<String> bricks = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            final int x = i;
+            map.getBrick(x).forEach((y, b) -> bricks.add(x + "/" + y + " " + b.getType() + " " + b.getColor()));
+        }
+        Collections.sort(bricks);
+        return bricks;
+    }
+
+    /**
+     * Checks if the grayscale edge pipeline finds the same bricks in the test images as the color edge pipeline
+     */
+    @Test
+    public void compareEdgePipelines() {
+        try {
+            ImageRecognizer color = new ImageRecognizer(false);
+            ImageRecognizer grayscale = new ImageRecognizer(true);
+
+            for (String image : List.of("default", "extensions", "rotated")) {
+                assertEquals(describeBricks(analyzeImage(color, image)),
+                        describeBricks(analyzeImage(grayscale, image)), image);
+            }
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.brickmusic.visuals;
+
+import org.brickmusic.bricklogic.BrickMap;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.opencv.opencv_java;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecognitionPipelineTest {
+
+    @BeforeAll
+    public static void setUp() {
+        Loader.load(opencv_java.class);
+    }
+
+    /**
+     * Recognizer whose stages only wait for a random time and record how frames pass the pipeline
+     */
+    private static class RecordingRecognizer extends ImageRecognizer {
+        private final List<Long> translated = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger releasedWhileProcessing = new AtomicInteger();
+        private final AtomicInteger releasedFrames = new AtomicInteger();
+        private final int maximalDelay;
+
+        private RecordingRecognizer(int maximalDelay) {
+            this.maximalDelay = maximalDelay;
+        }
+
+        private void process(@NotNull RecognitionFrame frame) {
+            final long end = System.nanoTime() + ThreadLocalRandom.current().nextInt(maximalDelay + 1) * 1_000_000L;
+            while (System.nanoTime() < end) Thread.onSpinWait();
+            if (frame.released) releasedWhileProcessing.incrementAndGet();
+        }
+
+        @Override
+        void prepare(@NotNull RecognitionFrame frame) {
+            process(frame);
+        }
+
+        @Override
+        void detect(@NotNull RecognitionFrame frame) {
+            process(frame);
+        }
+
+        @Override
+        BrickMap translate(@NotNull RecognitionFrame frame) {
+            process(frame);
+            translated.add(frame.sequence);
+            return new BrickMap();
+        }
+
+        @Override
+        void release(@NotNull RecognitionFrame frame) {
+            releasedFrames.incrementAndGet();
+        }
+    }
+
+    /**
+     * Submits new frames to a pipeline
+     */
+    private static void submitFrames(RecognitionPipeline pipeline, List<Mat> frames, int count, int delay)
+            throws InterruptedException {
+        for (int i = 0; i < count; i++) {
+            final Mat frame = new Mat(4, 4, CvType.CV_8UC3);
+            frames.add(frame);
+            pipeline.submit(frame);
+            Thread.sleep(delay);
+        }
+    }
+
+    /**
+     * Checks if results leave the pipeline in submission order and every frame is handed back exactly once
+     */
+    @Test
+    void checkOrdering() throws InterruptedException {
+        final RecordingRecognizer recognizer = new RecordingRecognizer(5);
+        final Map<Mat, Integer> recycled = Collections.synchronizedMap(new IdentityHashMap<>());
+        final AtomicInteger results = new AtomicInteger();
+        final RecognitionPipeline pipeline = new RecognitionPipeline(recognizer, new RecognitionPipeline.Listener() {
+            @Override
+            public void onRecognized(@NotNull BrickMap map, long start) {
+                results.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(@NotNull Exception exception, long start) {
+                fail(exception);
+            }
+        }, frame -> recycled.merge(frame, 1, Integer::sum));
+
+        final List<Mat> frames = new ArrayList<>();
+        submitFrames(pipeline, frames, 100, 1);
+        Thread.sleep(200);
+        pipeline.terminate();
+
+        final List<Long> translated = new ArrayList<>(recognizer.translated);
+        assertFalse(translated.isEmpty());
+        assertEquals(translated.size(), results.get());
+        for (int i = 1; i < translated.size(); i++) assertTrue(translated.get(i - 1) < translated.get(i));
+
+        assertEquals(frames.size(), recycled.size());
+        recycled.values().forEach(count -> assertEquals(1, (int) count));
+        assertEquals(0, recognizer.releasedWhileProcessing.get());
+    }
+
+    /**
+     * Checks if termination waits for running stages before releasing waiting frames, and if frames submitted after
+     * termination are handed back immediately
+     */
+    @Test
+    void checkShutdown() throws InterruptedException {
+        final RecordingRecognizer recognizer = new RecordingRecognizer(20);
+        final Map<Mat, Integer> recycled = Collections.synchronizedMap(new IdentityHashMap<>());
+        final RecognitionPipeline pipeline = new RecognitionPipeline(recognizer, new RecognitionPipeline.Listener() {
+            @Override
+            public void onRecognized(@NotNull BrickMap map, long start) {
+            }
+
+            @Override
+            public void onFailure(@NotNull Exception exception, long start) {
+                fail(exception);
+            }
+        }, frame -> recycled.merge(frame, 1, Integer::sum));
+
+        final List<Mat> frames = new ArrayList<>();
+        submitFrames(pipeline, frames, 10, 0);
+        pipeline.terminate();
+
+        assertEquals(frames.size(), recycled.size());
+        assertEquals(0, recognizer.releasedWhileProcessing.get());
+        final int released = recognizer.releasedFrames.get();
+
+        Thread.sleep(100);
+        assertEquals(released, recognizer.releasedFrames.get());
+        assertTrue(Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.getName().startsWith("BrickMusic-Recognition-") && thread.isAlive()));
+
+        final int translated = recognizer.translated.size();
+        final Mat late = new Mat(4, 4, CvType.CV_8UC3);
+        pipeline.submit(late);
+        assertEquals(1, (int) recycled.get(late));
+        Thread.sleep(50);
+        assertEquals(translated, recognizer.translated.size());
+    }
+
+    /**
+     * Checks if recognizers using change detection are rejected, as their prepare stage relies on the last result
+     */
+    @Test
+    void checkChangeDetectionRejected() {
+        final ImageRecognizer recognizer = new RecordingRecognizer(0) {
+            @Override
+            boolean detectsChanges() {
+                return true;
+            }
+        };
+        assertThrows(IllegalArgumentException.class, () -> new RecognitionPipeline(recognizer,
+                new RecognitionPipeline.Listener() {
+                    @Override
+                    public void onRecognized(@NotNull BrickMap map, long start) {
+                    }
+
+                    @Override
+                    public void onFailure(@NotNull Exception exception, long start) {
+                    }
+                }, frame -> {
+                }));
+        assertTrue(Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.getName().startsWith("BrickMusic-Recognition-") && thread.isAlive()));
+    }
+}